@@ -0,0 +1,162 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** The requests of an access log, read from a memory-mapped file.
+ *
+ * <p>Each line starts with a method and a path, separated by whitespace; any
+ * further fields and the query string are ignored, as are lines that don't
+ * have both. Lines longer than {@link #MAX_LINE_LENGTH} bytes are skipped
+ * and counted, rather than replayed truncated. The file is mapped and decoded a region at a time, so logs larger
+ * than memory can be sampled with a line limit.</p>
+ */
+public class AccessLog {
+	private static final long REGION_SIZE = 256L * 1024 * 1024;
+
+	/** The length in bytes of the longest line that is read. */
+	public static final int MAX_LINE_LENGTH = 8192;
+
+	private String[] methods;
+	private String[] paths;
+	private int size;
+	private int skippedLineCount;
+
+	private final RequestHandler appender = new RequestHandler() {
+		public void handleRequest(String method, String path) {
+			if (size == methods.length) {
+				methods = Arrays.copyOf(methods, size * 2);
+				paths = Arrays.copyOf(paths, size * 2);
+			}
+			methods[size] = method;
+			paths[size] = path;
+			size++;
+		}
+	};
+
+	private AccessLog() {
+		methods = new String[1024];
+		paths = new String[1024];
+	}
+
+	public static AccessLog read(File file, int maxLines) throws IOException {
+		AccessLog log = new AccessLog();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long length = channel.size();
+			long position = 0;
+			byte[] line = new byte[MAX_LINE_LENGTH];
+			int lineLength = 0;
+			boolean skipping = false;
+
+			while (position < length && log.size < maxLines) {
+				long regionSize = Math.min(REGION_SIZE, length - position);
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+				while (region.hasRemaining() && log.size < maxLines) {
+					byte b = region.get();
+					if (b == '\n') {
+						log.addLine(line, lineLength, skipping);
+						lineLength = 0;
+						skipping = false;
+					}
+					else if (lineLength < line.length) {
+						line[lineLength++] = b;
+					}
+					else {
+						skipping = true;
+					}
+				}
+				position += regionSize;
+			}
+
+			if (lineLength > 0 && log.size < maxLines) {
+				log.addLine(line, lineLength, skipping);
+			}
+		}
+		finally {
+			randomAccessFile.close();
+		}
+
+		return log;
+	}
+
+	private void addLine(byte[] line, int length, boolean tooLong) {
+		if (tooLong) {
+			skippedLineCount++;
+		}
+		else {
+			parseLine(line, length, appender);
+		}
+	}
+
+	/** Receives the method and path of a log line.
+	 */
+	interface RequestHandler {
+		void handleRequest(String method, String path);
+	}
+
+	/** Parses the first <code>length</code> bytes of <code>line</code>,
+	 * passing the method and path to the handler.
+	 * @return <code>false</code> if the line doesn't have a method and path
+	 */
+	static boolean parseLine(byte[] line, int length, RequestHandler handler) {
+		int methodStart = skipWhitespace(line, 0, length);
+		int methodEnd = skipToken(line, methodStart, length);
+		int pathStart = skipWhitespace(line, methodEnd, length);
+		int pathEnd = skipToken(line, pathStart, length);
+		if (methodEnd == methodStart || pathEnd == pathStart) {
+			return false;
+		}
+
+		for (int i = pathStart; i < pathEnd; i++) {
+			if (line[i] == '?') {
+				pathEnd = i;
+				break;
+			}
+		}
+
+		String method = new String(line, methodStart, methodEnd - methodStart, StandardCharsets.US_ASCII).intern();
+		String path = new String(line, pathStart, pathEnd - pathStart, StandardCharsets.UTF_8);
+		handler.handleRequest(method, path);
+		return true;
+	}
+
+	private static int skipWhitespace(byte[] line, int index, int length) {
+		while (index < length && (line[index] == ' ' || line[index] == '\t' || line[index] == '\r')) {
+			index++;
+		}
+		return index;
+	}
+
+	private static int skipToken(byte[] line, int index, int length) {
+		while (index < length && line[index] != ' ' && line[index] != '\t' && line[index] != '\r') {
+			index++;
+		}
+		return index;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Returns the number of lines skipped because they were longer than
+	 * {@link #MAX_LINE_LENGTH}.
+	 */
+	public int getSkippedLineCount() {
+		return skippedLineCount;
+	}
+
+	public String getMethod(int index) {
+		return methods[index];
+	}
+
+	public String getPath(int index) {
+		return paths[index];
+	}
+}
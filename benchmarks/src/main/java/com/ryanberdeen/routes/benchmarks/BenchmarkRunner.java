@@ -0,0 +1,40 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Runs the benchmarks with allocation profiling, writing the results as JSON.
+ *
+ * <p>Accepts the usual JMH command line options. Unless they say otherwise,
+ * the GC profiler is enabled and results are written to
+ * <code>jmh-result.json</code>. Run <code>mvn install</code> in the parent
+ * directory and <code>mvn package</code> here, then
+ * <code>java -jar target/benchmarks.jar</code>. To publish a baseline, commit
+ * the result file as <code>baseline.json</code> and compare later runs
+ * against it.</p>
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+		if (commandLineOptions.getIncludes().isEmpty()) {
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+		}
+		if (commandLineOptions.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.result("jmh-result.json");
+		}
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,75 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.path.PathPattern;
+
+/** Measures path generation by route name, by parameters, and directly
+ * from a {@link PathPattern}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark {
+	@Param({"10", "100", "1000", "10000"})
+	int routeCount;
+
+	private RouteSet routeSet;
+	private PathPattern pathPattern;
+	private Map<String, String> staticParameterValues;
+
+	private HashMap<String, Object> namedParameters;
+	private HashMap<String, Object> parameters;
+
+	@Setup
+	public void setUp() throws Exception {
+		routeSet = RouteSets.create(routeCount);
+
+		Route namedRoute = routeSet.getNamedRoute(RouteSets.NAMED_ROUTE);
+		pathPattern = namedRoute.getPathPattern();
+		staticParameterValues = namedRoute.getStaticParameterValues();
+
+		namedParameters = new HashMap<String, Object>();
+		namedParameters.put("id", "42");
+
+		// the last resource, so every route is considered
+		parameters = new HashMap<String, Object>();
+		parameters.put("controller", RouteSets.getResourceName(RouteSets.getResourceCount(routeCount) - 1));
+		parameters.put("action", "edit");
+		parameters.put("id", "42");
+	}
+
+	@Benchmark
+	public String getPathByName() {
+		return routeSet.getPath(RouteSets.NAMED_ROUTE, namedParameters, Route.NO_PARAMETER_VALUES);
+	}
+
+	@Benchmark
+	public String getPathByParameters() {
+		return routeSet.getPath(parameters, Route.NO_PARAMETER_VALUES);
+	}
+
+	@Benchmark
+	public String buildPath() {
+		return pathPattern.buildPath(namedParameters, staticParameterValues, Route.NO_PARAMETER_VALUES);
+	}
+}
@@ -0,0 +1,108 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteJavascriptGenerator;
+import com.ryanberdeen.routes.RouteSet;
+
+/** Measures {@link RouteJavascriptGenerator}, both serving the cached script
+ * and rendering it again after the mapping is set.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavascriptBenchmark {
+	@Param({"10", "100", "1000", "10000"})
+	int routeCount;
+
+	private RouteSet routeSet;
+	private RouteJavascriptGenerator cachedGenerator;
+	private RouteJavascriptGenerator uncachedGenerator;
+	private HttpServletRequest request;
+	private HttpServletResponse response;
+	private CountingOutputStream out;
+
+	@Setup
+	public void setUp() throws Exception {
+		routeSet = RouteSets.create(routeCount);
+		// name every route so the script includes all of them
+		for (Route route : routeSet.getRoutes()) {
+			if (route.getName() == null) {
+				route.setName("route" + route.getIndex());
+			}
+		}
+		routeSet.prepare();
+
+		cachedGenerator = new RouteJavascriptGenerator();
+		cachedGenerator.setMapping(routeSet);
+		uncachedGenerator = new RouteJavascriptGenerator();
+
+		out = new CountingOutputStream();
+		request = proxy(HttpServletRequest.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return method.getName().equals("getContextPath") ? "/app" : null;
+			}
+		});
+		response = proxy(HttpServletResponse.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				return method.getName().equals("getOutputStream") ? out : null;
+			}
+		});
+	}
+
+	@Benchmark
+	public long generateCached() throws IOException {
+		cachedGenerator.generate(request, response);
+		return out.count;
+	}
+
+	@Benchmark
+	public long generateUncached() throws IOException {
+		// setting the mapping discards the rendered scripts
+		uncachedGenerator.setMapping(routeSet);
+		uncachedGenerator.generate(request, response);
+		return out.count;
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+	}
+
+	private static class CountingOutputStream extends ServletOutputStream {
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ryanberdeen.routes.RequestMatch;
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+import com.ryanberdeen.routes.builder.RouteSetBuilderTemplate;
+
+/** Counts the requests of access logs matched by each route of a route set.
+ *
+ * <p>Usage: <code>java -cp target/benchmarks.jar
+ * com.ryanberdeen.routes.benchmarks.LogClassifier [--parallelism n]
+ * [--chunk-size MB] &lt;template class&gt; &lt;access log&gt;...</code>. The
+ * template class and the log format are as for {@link ReplayHarness}.</p>
+ *
+ * <p>Each file is split into chunks that end at line boundaries, and the
+ * chunks are classified on a fork-join pool. Each chunk is memory-mapped and
+ * counts into its own array, which is added to the shared counters when the
+ * chunk is done. A mapping is only released when its buffer is garbage
+ * collected, but its pages are backed by the file and can be reclaimed by the
+ * operating system at any time, so heap use depends on the parallelism and the
+ * number of routes rather than on the size of the logs. Lines longer than
+ * {@link AccessLog#MAX_LINE_LENGTH} bytes are counted as malformed.</p>
+ *
+ * <p>The running totals are written as each file is classified. The share of
+ * each route depends on the total, so the per-route summary is written once
+ * all the files are classified.</p>
+ */
+public class LogClassifier {
+	private static final int MAX_LINE_LENGTH = AccessLog.MAX_LINE_LENGTH;
+
+	private final RouteSet routeSet;
+	private final ForkJoinPool pool;
+	private final long chunkSize;
+
+	private final LongAdder[] routeCounts;
+	private final LongAdder unmatchedCount = new LongAdder();
+	private final LongAdder malformedCount = new LongAdder();
+
+	/**
+	 * @param routeSet a prepared route set
+	 * @param chunkSize the approximate number of bytes classified by each task
+	 */
+	public LogClassifier(RouteSet routeSet, ForkJoinPool pool, long chunkSize) {
+		if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE - MAX_LINE_LENGTH) {
+			throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+		}
+		this.routeSet = routeSet;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+
+		routeCounts = new LongAdder[routeSet.getRoutes().size()];
+		for (int i = 0; i < routeCounts.length; i++) {
+			routeCounts[i] = new LongAdder();
+		}
+	}
+
+	/** Classifies the lines of the file, adding them to the counts.
+	 */
+	public void classify(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			pool.invoke(new ClassifyChunks(channel, findChunkBoundaries(channel), 0, -1));
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/** Returns the start of each chunk, followed by the end of the file.
+	 */
+	private long[] findChunkBoundaries(FileChannel channel) throws IOException {
+		long length = channel.size();
+		List<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(0L);
+
+		ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_LENGTH);
+		long boundary = chunkSize;
+		while (boundary < length) {
+			// the chunk ends after the first newline at or after the nominal end
+			long position = boundary - 1;
+			long lineEnd = -1;
+			while (lineEnd < 0 && position < length) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				for (int i = 0; i < read; i++) {
+					if (buffer.get(i) == '\n') {
+						lineEnd = position + i + 1;
+						break;
+					}
+				}
+				position += Math.max(read, 0);
+			}
+
+			if (lineEnd < 0 || lineEnd >= length) {
+				break;
+			}
+			boundaries.add(lineEnd);
+			boundary = lineEnd + chunkSize;
+		}
+		boundaries.add(length);
+
+		long[] result = new long[boundaries.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = boundaries.get(i);
+		}
+		return result;
+	}
+
+	/** Classifies the chunks <code>first</code> to <code>last</code>,
+	 * splitting the range in half until it is a single chunk.
+	 */
+	@SuppressWarnings("serial")
+	private class ClassifyChunks extends RecursiveAction {
+		private final FileChannel channel;
+		private final long[] boundaries;
+		private final int first;
+		private final int last;
+
+		ClassifyChunks(FileChannel channel, long[] boundaries, int first, int last) {
+			this.channel = channel;
+			this.boundaries = boundaries;
+			this.first = first;
+			this.last = last < 0 ? boundaries.length - 2 : last;
+		}
+
+		@Override
+		protected void compute() {
+			if (first < last) {
+				int middle = (first + last) >>> 1;
+				invokeAll(new ClassifyChunks(channel, boundaries, first, middle), new ClassifyChunks(channel, boundaries, middle + 1, last));
+			}
+			else if (first == last) {
+				try {
+					classifyChunk(channel, boundaries[first], boundaries[first + 1]);
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Failed to read chunk " + first, e);
+				}
+			}
+		}
+	}
+
+	private void classifyChunk(FileChannel channel, long start, long end) throws IOException {
+		final long[] counts = new long[routeCounts.length];
+		final long[] unmatched = new long[1];
+		long malformed = 0;
+
+		AccessLog.RequestHandler handler = new AccessLog.RequestHandler() {
+			public void handleRequest(String method, String path) {
+				RequestMatch match = routeSet.getBestMatch(method, path);
+				if (match != null) {
+					counts[match.getRoute().getIndex()]++;
+				}
+				else {
+					unmatched[0]++;
+				}
+			}
+		};
+
+		MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		byte[] line = new byte[MAX_LINE_LENGTH];
+		int lineLength = 0;
+		boolean tooLong = false;
+		while (chunk.hasRemaining()) {
+			byte b = chunk.get();
+			if (b == '\n') {
+				if (tooLong || lineLength > 0 && !AccessLog.parseLine(line, lineLength, handler)) {
+					malformed++;
+				}
+				lineLength = 0;
+				tooLong = false;
+			}
+			else if (lineLength < line.length) {
+				line[lineLength++] = b;
+			}
+			else {
+				tooLong = true;
+			}
+		}
+		if (tooLong || lineLength > 0 && !AccessLog.parseLine(line, lineLength, handler)) {
+			malformed++;
+		}
+
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				routeCounts[i].add(counts[i]);
+			}
+		}
+		unmatchedCount.add(unmatched[0]);
+		malformedCount.add(malformed);
+	}
+
+	/** Writes the numbers of matched and unmatched requests and of lines
+	 * that aren't requests classified so far.
+	 */
+	public void writeTotals(Writer writer) throws IOException {
+		PrintWriter out = new PrintWriter(writer);
+		long matched = 0;
+		for (LongAdder routeCount : routeCounts) {
+			matched += routeCount.sum();
+		}
+		out.printf("%d matched, %d unmatched, %d malformed%n", matched, unmatchedCount.sum(), malformedCount.sum());
+		out.flush();
+	}
+
+	/** Writes the count and share of the requests matched by each route, in
+	 * route order, followed by the unmatched requests and the lines that
+	 * aren't requests.
+	 */
+	public void writeSummary(Writer writer) throws IOException {
+		PrintWriter out = new PrintWriter(writer);
+		List<Route> routes = routeSet.getRoutes();
+		long total = unmatchedCount.sum();
+		long[] counts = new long[routeCounts.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = routeCounts[i].sum();
+			total += counts[i];
+		}
+
+		for (int i = 0; i < counts.length; i++) {
+			Route route = routes.get(i);
+			String label = route.getName() != null ? route.getName() : i + " " + route.getPathPattern().getStringTemplate();
+			out.printf("%d\t%.4f%%\t%s%n", counts[i], percent(counts[i], total), label);
+		}
+		out.printf("%d\t%.4f%%\t(unmatched)%n", unmatchedCount.sum(), percent(unmatchedCount.sum(), total));
+		out.printf("%d\t\t(malformed)%n", malformedCount.sum());
+		out.flush();
+	}
+
+	private static double percent(long count, long total) {
+		return total == 0 ? 0 : count * 100.0 / total;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<String>();
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		long chunkSize = 64L * 1024 * 1024;
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--parallelism")) {
+				parallelism = Integer.parseInt(args[++i]);
+			}
+			else if (arg.equals("--chunk-size")) {
+				chunkSize = Long.parseLong(args[++i]) * 1024 * 1024;
+			}
+			else {
+				arguments.add(arg);
+			}
+		}
+
+		if (arguments.size() < 2) {
+			throw new IllegalArgumentException("Usage: LogClassifier [--parallelism n] [--chunk-size MB] <template class> <access log>...");
+		}
+
+		RouteSetBuilderTemplate template = (RouteSetBuilderTemplate) Class.forName(arguments.get(0)).getDeclaredConstructor().newInstance();
+		RouteSetBuilder builder = new RouteSetBuilder();
+		template.applyTemplate(builder);
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			LogClassifier classifier = new LogClassifier(routeSet, pool, chunkSize);
+			PrintWriter err = new PrintWriter(System.err);
+			for (String fileName : arguments.subList(1, arguments.size())) {
+				classifier.classify(new File(fileName));
+				err.print(fileName + ": ");
+				classifier.writeTotals(err);
+			}
+			classifier.writeSummary(new PrintWriter(System.out));
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ryanberdeen.routes.CompiledMatchEngine;
+import com.ryanberdeen.routes.RequestMatch;
+import com.ryanberdeen.routes.RouteSet;
+
+/** Measures {@link RouteSet#getBestMatch(String, String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+	@Param({"10", "100", "1000", "10000"})
+	int routeCount;
+
+	@Param({"hit", "miss", "deep"})
+	String workload;
+
+	@Param({"linear", "compiled"})
+	String engine;
+
+	private RouteSet routeSet;
+	private String[] paths;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		routeSet = RouteSets.create(routeCount);
+		if (engine.equals("compiled")) {
+			routeSet.setMatchEngine(new CompiledMatchEngine());
+			routeSet.prepare();
+		}
+		paths = RouteSets.createPaths(workload, routeCount);
+	}
+
+	@Benchmark
+	public RequestMatch getBestMatch() {
+		String path = paths[next++ & (paths.length - 1)];
+		return routeSet.getBestMatch("GET", path);
+	}
+}
@@ -0,0 +1,308 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+import com.ryanberdeen.routes.builder.RouteSetBuilderTemplate;
+
+/** Replays an access log against a route set on an increasing number of
+ * threads, reporting throughput, latency percentiles and allocation rate for
+ * each thread count.
+ *
+ * <p>Usage: <code>java -cp target/benchmarks.jar
+ * com.ryanberdeen.routes.benchmarks.ReplayHarness [options] &lt;template
+ * class&gt; &lt;access log&gt;</code>. The template class is a
+ * {@link RouteSetBuilderTemplate} with a public no-argument constructor, as for
+ * the route set analyzer; the access log format is described in
+ * {@link AccessLog}. Options:</p>
+ *
+ * <ul>
+ * <li><code>--threads 1,2,4,8</code>: the thread counts to measure; defaults
+ * to powers of two up to the number of processors</li>
+ * <li><code>--virtual</code>: replays on virtual threads, which requires Java
+ * 21</li>
+ * <li><code>--warmup 5</code> and <code>--duration 10</code>: the seconds to
+ * replay before and while measuring each thread count</li>
+ * <li><code>--max-lines 10000000</code>: the number of log lines to load</li>
+ * </ul>
+ *
+ * <p>Each thread replays the whole log in order, starting at a different
+ * offset, and times every match. Latency percentiles are taken from the last
+ * {@value #LATENCY_SAMPLES} latencies of each thread. Allocation is measured
+ * per thread, so it is only reported for platform threads.</p>
+ */
+public class ReplayHarness {
+	private static final int LATENCY_SAMPLES = 1 << 20;
+
+	private final RouteSet routeSet;
+	private final AccessLog log;
+	private final boolean virtualThreads;
+
+	public ReplayHarness(RouteSet routeSet, AccessLog log, boolean virtualThreads) {
+		this.routeSet = routeSet;
+		this.log = log;
+		this.virtualThreads = virtualThreads;
+	}
+
+	/** Replays the log on the given number of threads for the given time.
+	 */
+	public Result run(int threadCount, long duration, TimeUnit unit) throws Exception {
+		final long deadline = System.nanoTime() + unit.toNanos(duration);
+		final CountDownLatch start = new CountDownLatch(1);
+		Replayer[] replayers = new Replayer[threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			replayers[i] = new Replayer((int) ((long) log.size() * i / threadCount), start, deadline);
+			threads[i] = newThread(replayers[i]);
+			threads[i].start();
+		}
+
+		long startTime = System.nanoTime();
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - startTime;
+
+		long requests = 0;
+		long allocatedBytes = 0;
+		int sampleCount = 0;
+		for (Replayer replayer : replayers) {
+			if (replayer.failure != null) {
+				throw new IllegalStateException("Replay failed", replayer.failure);
+			}
+			requests += replayer.requests;
+			allocatedBytes = replayer.allocatedBytes < 0 || allocatedBytes < 0 ? -1 : allocatedBytes + replayer.allocatedBytes;
+			sampleCount += replayer.getSampleCount();
+		}
+
+		long[] latencies = new long[sampleCount];
+		int offset = 0;
+		for (Replayer replayer : replayers) {
+			System.arraycopy(replayer.latencies, 0, latencies, offset, replayer.getSampleCount());
+			offset += replayer.getSampleCount();
+		}
+		Arrays.sort(latencies);
+
+		return new Result(threadCount, requests, elapsed, latencies, allocatedBytes);
+	}
+
+	private Thread newThread(Runnable runnable) throws Exception {
+		if (!virtualThreads) {
+			return new Thread(runnable);
+		}
+
+		// compiled for Java 8, so virtual threads are created reflectively
+		Method ofVirtual;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+		}
+		catch (NoSuchMethodException e) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21");
+		}
+		Object builder = ofVirtual.invoke(null);
+		Method unstarted = ofVirtual.getReturnType().getMethod("unstarted", Runnable.class);
+		return (Thread) unstarted.invoke(builder, runnable);
+	}
+
+	private class Replayer implements Runnable {
+		private final int startIndex;
+		private final CountDownLatch start;
+		private final long deadline;
+
+		private final long[] latencies = new long[LATENCY_SAMPLES];
+		private long requests;
+		private long allocatedBytes = -1;
+		private Throwable failure;
+
+		Replayer(int startIndex, CountDownLatch start, long deadline) {
+			this.startIndex = startIndex;
+			this.start = start;
+			this.deadline = deadline;
+		}
+
+		public void run() {
+			try {
+				start.await();
+				long allocatedBefore = getAllocatedBytes();
+
+				int size = log.size();
+				int index = startIndex;
+				long now = System.nanoTime();
+				while (now < deadline) {
+					routeSet.getBestMatch(log.getMethod(index), log.getPath(index));
+					long end = System.nanoTime();
+					latencies[(int) (requests & (LATENCY_SAMPLES - 1))] = end - now;
+					requests++;
+					now = end;
+					if (++index == size) {
+						index = 0;
+					}
+				}
+
+				long allocatedAfter = getAllocatedBytes();
+				if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+					allocatedBytes = allocatedAfter - allocatedBefore;
+				}
+			}
+			catch (Throwable t) {
+				failure = t;
+			}
+		}
+
+		int getSampleCount() {
+			return (int) Math.min(requests, LATENCY_SAMPLES);
+		}
+	}
+
+	/** Returns the bytes allocated by the current thread, or <code>-1</code>
+	 * if the VM can't measure it.
+	 */
+	private static long getAllocatedBytes() {
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+				return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/** The measurements of one run.
+	 */
+	public static class Result {
+		private final int threadCount;
+		private final long requests;
+		private final long elapsedNanos;
+		private final long[] sortedLatencies;
+		private final long allocatedBytes;
+
+		Result(int threadCount, long requests, long elapsedNanos, long[] sortedLatencies, long allocatedBytes) {
+			this.threadCount = threadCount;
+			this.requests = requests;
+			this.elapsedNanos = elapsedNanos;
+			this.sortedLatencies = sortedLatencies;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public int getThreadCount() {
+			return threadCount;
+		}
+
+		public double getThroughput() {
+			return requests * 1e9 / elapsedNanos;
+		}
+
+		/** Returns the latency at the percentile, in nanoseconds.
+		 */
+		public long getLatency(double percentile) {
+			if (sortedLatencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+			return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+		}
+
+		/** Returns the allocation rate in bytes per second, or <code>-1</code>
+		 * if allocation could not be measured.
+		 */
+		public double getAllocationRate() {
+			return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos;
+		}
+
+		/** Returns the bytes allocated per request, or <code>-1</code> if
+		 * allocation could not be measured.
+		 */
+		public double getAllocationPerRequest() {
+			return allocatedBytes < 0 || requests == 0 ? -1 : (double) allocatedBytes / requests;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<String>();
+		int[] threadCounts = null;
+		boolean virtualThreads = false;
+		long warmup = 5;
+		long duration = 10;
+		int maxLines = 10000000;
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--threads")) {
+				String[] counts = args[++i].split(",");
+				threadCounts = new int[counts.length];
+				for (int j = 0; j < counts.length; j++) {
+					threadCounts[j] = Integer.parseInt(counts[j].trim());
+				}
+			}
+			else if (arg.equals("--virtual")) {
+				virtualThreads = true;
+			}
+			else if (arg.equals("--warmup")) {
+				warmup = Long.parseLong(args[++i]);
+			}
+			else if (arg.equals("--duration")) {
+				duration = Long.parseLong(args[++i]);
+			}
+			else if (arg.equals("--max-lines")) {
+				maxLines = Integer.parseInt(args[++i]);
+			}
+			else {
+				arguments.add(arg);
+			}
+		}
+
+		if (arguments.size() != 2) {
+			throw new IllegalArgumentException("Usage: ReplayHarness [--threads 1,2,4] [--virtual] [--warmup seconds] [--duration seconds] [--max-lines n] <template class> <access log>");
+		}
+
+		if (threadCounts == null) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			List<Integer> counts = new ArrayList<Integer>();
+			for (int count = 1; count < processors; count *= 2) {
+				counts.add(count);
+			}
+			counts.add(processors);
+			threadCounts = new int[counts.size()];
+			for (int i = 0; i < threadCounts.length; i++) {
+				threadCounts[i] = counts.get(i);
+			}
+		}
+
+		RouteSetBuilderTemplate template = (RouteSetBuilderTemplate) Class.forName(arguments.get(0)).getDeclaredConstructor().newInstance();
+		RouteSetBuilder builder = new RouteSetBuilder();
+		template.applyTemplate(builder);
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		AccessLog log = AccessLog.read(new File(arguments.get(1)), maxLines);
+		if (log.size() == 0) {
+			throw new IllegalArgumentException("No requests in " + arguments.get(1));
+		}
+		System.out.printf("%d routes, %d requests, %s threads%n", routeSet.getRoutes().size(), log.size(), virtualThreads ? "virtual" : "platform");
+		if (log.getSkippedLineCount() > 0) {
+			System.out.printf("%d lines longer than %d bytes skipped%n", log.getSkippedLineCount(), AccessLog.MAX_LINE_LENGTH);
+		}
+		System.out.printf("%8s %14s %10s %10s %10s %12s %10s%n", "threads", "requests/s", "p50 ns", "p99 ns", "p999 ns", "alloc MB/s", "B/request");
+
+		ReplayHarness harness = new ReplayHarness(routeSet, log, virtualThreads);
+		for (int threadCount : threadCounts) {
+			if (warmup > 0) {
+				harness.run(threadCount, warmup, TimeUnit.SECONDS);
+			}
+			Result result = harness.run(threadCount, duration, TimeUnit.SECONDS);
+			System.out.printf("%8d %14.0f %10d %10d %10d %12.1f %10.1f%n", result.getThreadCount(), result.getThroughput(),
+				result.getLatency(50), result.getLatency(99), result.getLatency(99.9),
+				result.getAllocationRate() / (1024 * 1024), result.getAllocationPerRequest());
+		}
+	}
+}
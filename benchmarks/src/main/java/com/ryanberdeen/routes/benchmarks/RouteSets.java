@@ -0,0 +1,72 @@
+package com.ryanberdeen.routes.benchmarks;
+
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.builder.ResourceTemplate;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+/** Builds synthetic route sets and request paths for the benchmarks.
+ *
+ * <p>A route set of <code>n</code> routes has <code>n / 3</code> resources,
+ * each with the collection and member routes of {@link ResourceTemplate},
+ * followed by a named <code>person</code> route and a <code>/files/*path</code>
+ * catch-all.</p>
+ */
+public class RouteSets {
+	public static final String NAMED_ROUTE = "person";
+
+	public static RouteSet create(int routeCount) throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		RouteSetBuilder resources = builder.template(new ResourceTemplate());
+		for (int i = 0, resourceCount = getResourceCount(routeCount); i < resourceCount; i++) {
+			RouteSetBuilder resource = resources.nested();
+			resource.append("/" + getResourceName(i) + "/");
+			resource.setParameterValue("controller", getResourceName(i));
+			resource.template("collection");
+			resource.template("member");
+		}
+
+		builder.match("/people/:id").setName(NAMED_ROUTE).setParameterValue("controller", "person");
+		builder.match("/files/*path").setParameterValue("controller", "file");
+
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+		return routeSet;
+	}
+
+	public static int getResourceCount(int routeCount) {
+		return Math.max(1, routeCount / 3);
+	}
+
+	public static String getResourceName(int index) {
+		return "resource" + index;
+	}
+
+	/** Returns request paths for a workload: <code>hit</code> paths match
+	 * member routes spread over all resources, <code>miss</code> paths match
+	 * no route, and <code>deep</code> paths have many segments and only match
+	 * the final catch-all. The number of paths is a power of two.
+	 */
+	public static String[] createPaths(String workload, int routeCount) {
+		String[] paths = new String[1024];
+		int resourceCount = getResourceCount(routeCount);
+		for (int i = 0; i < paths.length; i++) {
+			if (workload.equals("hit")) {
+				paths[i] = "/" + getResourceName((i * 7919) % resourceCount) + "/" + i + "/edit";
+			}
+			else if (workload.equals("miss")) {
+				paths[i] = "/missing" + i + "/" + i + "/edit";
+			}
+			else if (workload.equals("deep")) {
+				StringBuilder path = new StringBuilder("/files");
+				for (int segment = 0; segment < 16; segment++) {
+					path.append("/segment").append(segment).append('-').append(i);
+				}
+				paths[i] = path.toString();
+			}
+			else {
+				throw new IllegalArgumentException("Unknown workload: " + workload);
+			}
+		}
+		return paths;
+	}
+}
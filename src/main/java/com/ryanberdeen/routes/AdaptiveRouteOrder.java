@@ -0,0 +1,101 @@
+package com.ryanberdeen.routes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Computes orders in which to test routes so that frequently matched routes
+ * are tested first, without changing which route matches a request.
+ *
+ * <p>A route may only be moved ahead of an earlier route if the two routes are
+ * disjoint: if they could match the same request, the earlier route must still
+ * be tested first. Among the routes that can be tested next, the one with the
+ * highest score is chosen. Scores are the number of matches since the last
+ * reordering, plus half of the previous score.</p>
+ */
+class AdaptiveRouteOrder {
+	private Route[] routes;
+
+	/** For each route, the later routes that may match the same requests. */
+	private int[][] conflicts;
+
+	private long[] previousMatchCounts;
+	private long[] scores;
+
+	AdaptiveRouteOrder(List<Route> routes) {
+		int count = routes.size();
+		this.routes = routes.toArray(new Route[count]);
+		conflicts = new int[count][];
+		previousMatchCounts = new long[count];
+		scores = new long[count];
+
+		ArrayList<Integer> routeConflicts = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			routeConflicts.clear();
+			for (int j = i + 1; j < count; j++) {
+				if (!RouteOverlap.isDisjoint(this.routes[i], this.routes[j])) {
+					routeConflicts.add(j);
+				}
+			}
+
+			conflicts[i] = new int[routeConflicts.size()];
+			for (int k = 0; k < conflicts[i].length; k++) {
+				conflicts[i][k] = routeConflicts.get(k);
+			}
+		}
+	}
+
+	int size() {
+		return routes.length;
+	}
+
+	/**
+	 * Updates the scores with the match counts and returns the new order.
+	 * @param matchCounts the total number of matches of each route
+	 */
+	synchronized Route[] reorder(long[] matchCounts) {
+		int count = routes.length;
+		for (int i = 0; i < count; i++) {
+			scores[i] = scores[i] / 2 + (matchCounts[i] - previousMatchCounts[i]);
+			previousMatchCounts[i] = matchCounts[i];
+		}
+
+		int[] unorderedPredecessors = new int[count];
+		for (int[] routeConflicts : conflicts) {
+			for (int j : routeConflicts) {
+				unorderedPredecessors[j]++;
+			}
+		}
+
+		PriorityQueue<Integer> available = new PriorityQueue<Integer>(Math.max(count, 1), new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long scoreA = scores[a];
+				long scoreB = scores[b];
+				if (scoreA != scoreB) {
+					return scoreA > scoreB ? -1 : 1;
+				}
+				return a - b;
+			}
+		});
+		for (int i = 0; i < count; i++) {
+			if (unorderedPredecessors[i] == 0) {
+				available.add(i);
+			}
+		}
+
+		Route[] order = new Route[count];
+		for (int position = 0; position < count; position++) {
+			int i = available.remove();
+			order[position] = routes[i];
+			for (int j : conflicts[i]) {
+				if (--unorderedPredecessors[j] == 0) {
+					available.add(j);
+				}
+			}
+		}
+
+		return order;
+	}
+}
@@ -0,0 +1,28 @@
+package com.ryanberdeen.routes;
+
+import java.util.List;
+
+/**
+ * Matches the same routes as {@link LinearMatchEngine}, but only tests a
+ * route's regular expression if the request passes the route's method,
+ * length and literal prefix checks. Routes are held in a
+ * {@link CompiledRouteTable}; if any route has a host pattern, there is a
+ * table for each group of hosts, and only the table for the request's host
+ * is scanned.
+ *
+ * <p>Like any new engine, it can be rolled out behind a
+ * {@link ShadowMatchEngine}, which verifies a sample of its matches against
+ * the reference engine.</p>
+ */
+public class CompiledMatchEngine implements MatchEngine {
+	/** The tables of routes, in the order in which they are tested. */
+	private volatile HostDispatcher hostDispatcher = new HostDispatcher(new Route[0]);
+
+	public void prepare(List<Route> routes) {
+		hostDispatcher = new HostDispatcher(routes.toArray(new Route[routes.size()]));
+	}
+
+	public RequestMatch match(String host, String method, String path, String format) {
+		return hostDispatcher.match(host, method, path, format);
+	}
+}
@@ -0,0 +1,321 @@
+package com.ryanberdeen.routes;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.PathPattern;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.StaticSegment;
+
+/**
+ * An immutable table of routes, in scan order, with the facts needed to
+ * reject most routes for a request stored in flat arrays. A route is only
+ * tested against the request if its method masks allow the method, the
+ * path is at least its minimum length and has no more slashes than it can
+ * match, and the path starts with its literal prefix.
+ *
+ * <p>The distinct literal prefixes are ranked in lexicographic order, so the
+ * prefixes that start with a prefix directly follow it. A single pass over
+ * the path finds the longest prefix the path starts with, looking up the
+ * path's hash at each prefix length; a route's prefix then matches if that
+ * prefix is ranked within the route prefix's range. Matching allocates
+ * nothing to compare prefixes.</p>
+ */
+final class CompiledRouteTable {
+	/** The number of slashes of a route whose parameters can match slashes. */
+	private static final int ANY_SLASHES = -1;
+
+	/** The rank of an empty prefix, or of no prefix. */
+	private static final int NO_PREFIX = -1;
+
+	private final Route[] routes;
+
+	private final int[] methodMasks;
+	private final int[] excludedMethodMasks;
+	private final int[] minLengths;
+	private final int[] maxSlashes;
+
+	/** The rank and length of each route's literal prefix. */
+	private final int[] prefixRanks;
+	private final int[] prefixLengths;
+
+	/** By rank, the rank after the last prefix that starts with the prefix. */
+	private final int[] prefixEnds;
+
+	/** By rank, the positions of the prefixes in <code>literals</code>, followed by its length. */
+	private final int[] literalOffsets;
+	private final char[] literals;
+
+	/** The distinct prefix lengths, ascending, with the range of each length in the lookup arrays. */
+	private final int[] lookupLengths;
+	private final int[] lookupStarts;
+
+	/** The prefixes, by length and then by hash, as {@link String#hashCode()}. */
+	private final int[] lookupHashes;
+	private final int[] lookupRanks;
+
+	private final int maxPrefixLength;
+
+	CompiledRouteTable(Route[] routes) {
+		this.routes = routes;
+		int count = routes.length;
+		methodMasks = new int[count];
+		excludedMethodMasks = new int[count];
+		minLengths = new int[count];
+		maxSlashes = new int[count];
+		prefixRanks = new int[count];
+		prefixLengths = new int[count];
+
+		TreeSet<String> distinctPrefixes = new TreeSet<String>();
+		for (int i = 0; i < count; i++) {
+			Route route = routes[i];
+			methodMasks[i] = route.getMethodMask();
+			excludedMethodMasks[i] = route.getExcludedMethodMask();
+			minLengths[i] = getMinLength(route);
+			maxSlashes[i] = getMaxSlashes(route);
+
+			String prefix = route.getPathPattern().getLiteralPrefix();
+			prefixLengths[i] = prefix.length();
+			if (prefix.length() > 0) {
+				distinctPrefixes.add(prefix);
+			}
+		}
+
+		final String[] prefixes = distinctPrefixes.toArray(new String[distinctPrefixes.size()]);
+		HashMap<String, Integer> ranks = new HashMap<String, Integer>();
+		literalOffsets = new int[prefixes.length + 1];
+		for (int rank = 0; rank < prefixes.length; rank++) {
+			ranks.put(prefixes[rank], rank);
+			literalOffsets[rank + 1] = literalOffsets[rank] + prefixes[rank].length();
+		}
+		literals = new char[literalOffsets[prefixes.length]];
+		for (int rank = 0; rank < prefixes.length; rank++) {
+			prefixes[rank].getChars(0, prefixes[rank].length(), literals, literalOffsets[rank]);
+		}
+		for (int i = 0; i < count; i++) {
+			prefixRanks[i] = prefixLengths[i] > 0 ? ranks.get(routes[i].getPathPattern().getLiteralPrefix()) : NO_PREFIX;
+		}
+
+		// close the range of each prefix at the first prefix that does not start with it
+		prefixEnds = new int[prefixes.length];
+		int[] open = new int[prefixes.length];
+		int depth = 0;
+		for (int rank = 0; rank < prefixes.length; rank++) {
+			while (depth > 0 && !prefixes[rank].startsWith(prefixes[open[depth - 1]])) {
+				prefixEnds[open[--depth]] = rank;
+			}
+			open[depth++] = rank;
+		}
+		while (depth > 0) {
+			prefixEnds[open[--depth]] = prefixes.length;
+		}
+
+		Integer[] lookupOrder = new Integer[prefixes.length];
+		for (int rank = 0; rank < prefixes.length; rank++) {
+			lookupOrder[rank] = rank;
+		}
+		Arrays.sort(lookupOrder, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				String prefixA = prefixes[a];
+				String prefixB = prefixes[b];
+				if (prefixA.length() != prefixB.length()) {
+					return prefixA.length() < prefixB.length() ? -1 : 1;
+				}
+				int hashA = prefixA.hashCode();
+				int hashB = prefixB.hashCode();
+				return hashA < hashB ? -1 : (hashA == hashB ? 0 : 1);
+			}
+		});
+
+		lookupHashes = new int[prefixes.length];
+		lookupRanks = new int[prefixes.length];
+		int lengthCount = 0;
+		for (int i = 0; i < prefixes.length; i++) {
+			lookupRanks[i] = lookupOrder[i];
+			lookupHashes[i] = prefixes[lookupRanks[i]].hashCode();
+			if (i == 0 || prefixes[lookupRanks[i]].length() != prefixes[lookupRanks[i - 1]].length()) {
+				lengthCount++;
+			}
+		}
+		lookupLengths = new int[lengthCount];
+		lookupStarts = new int[lengthCount + 1];
+		int lengthIndex = -1;
+		for (int i = 0; i < prefixes.length; i++) {
+			int length = prefixes[lookupRanks[i]].length();
+			if (lengthIndex == -1 || length != lookupLengths[lengthIndex]) {
+				lengthIndex++;
+				lookupLengths[lengthIndex] = length;
+				lookupStarts[lengthIndex] = i;
+			}
+		}
+		lookupStarts[lengthCount] = prefixes.length;
+		maxPrefixLength = lengthCount > 0 ? lookupLengths[lengthCount - 1] : 0;
+	}
+
+	/**
+	 * Returns the length of the shortest path the route can match.
+	 */
+	private static int getMinLength(Route route) {
+		int minLength = 0;
+		for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+			if (segment instanceof StaticSegment) {
+				StaticSegment staticSegment = (StaticSegment) segment;
+				if (staticSegment.isRequired()) {
+					String value = staticSegment.getValue();
+					// a trailing slash may be omitted at the end of the path
+					minLength += value.endsWith("/") ? value.length() - 1 : value.length();
+				}
+			}
+			else if (segment instanceof ParameterSegment) {
+				ParameterSegment parameterSegment = (ParameterSegment) segment;
+				if (parameterSegment.isRequired() && parameterSegment.hasDefaultRegex()) {
+					minLength++;
+				}
+			}
+		}
+		return minLength;
+	}
+
+	/**
+	 * Returns the most slashes a path matched by the route can have, or
+	 * {@link #ANY_SLASHES}.
+	 */
+	private static int getMaxSlashes(Route route) {
+		int maxSlashes = 0;
+		for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+			if (segment instanceof StaticSegment) {
+				String value = ((StaticSegment) segment).getValue();
+				for (int i = 0; i < value.length(); i++) {
+					if (value.charAt(i) == '/') {
+						maxSlashes++;
+					}
+				}
+			}
+			else if (segment instanceof ParameterSegment) {
+				ParameterSegment parameterSegment = (ParameterSegment) segment;
+				if (parameterSegment.isAllowSlashes() || !parameterSegment.hasDefaultRegex()) {
+					return ANY_SLASHES;
+				}
+			}
+			else {
+				return ANY_SLASHES;
+			}
+		}
+		return maxSlashes;
+	}
+
+	/**
+	 * Returns the match of the first route that matches the request, or
+	 * <code>null</code> if no route matches.
+	 * @param host a {@link HostPattern#normalize(String) normalized} host, or
+	 * <code>null</code>
+	 * @param format the format suffix of the path, or <code>null</code>
+	 */
+	RequestMatch match(String host, String method, String path, String format) {
+		int length = path.length();
+
+		// find the longest prefix the path starts with, and count the slashes
+		int hashLength = Math.min(length, maxPrefixLength);
+		int pathRank = NO_PREFIX;
+		int lengthIndex = 0;
+		int slashes = 0;
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			char c = path.charAt(i);
+			if (i < hashLength) {
+				hash = 31 * hash + c;
+				if (i + 1 == lookupLengths[lengthIndex]) {
+					int rank = findPrefix(path, hash, lengthIndex++);
+					if (rank != NO_PREFIX) {
+						pathRank = rank;
+					}
+				}
+			}
+			if (c == '/') {
+				slashes++;
+			}
+		}
+
+		// the suffix has no slashes, so only the length differs without it
+		int formatPathLength = format != null ? length - format.length() - 1 : -1;
+		String formatPath = null;
+
+		int bit = HttpMethods.bit(method);
+		for (int i = 0; i < routes.length; i++) {
+			if (bit != HttpMethods.OTHER && ((methodMasks[i] & bit) == 0 || (excludedMethodMasks[i] & bit) != 0)) {
+				continue;
+			}
+			if (maxSlashes[i] != ANY_SLASHES && slashes > maxSlashes[i]) {
+				continue;
+			}
+			int rank = prefixRanks[i];
+			if (rank != NO_PREFIX && (pathRank < rank || pathRank >= prefixEnds[rank])) {
+				continue;
+			}
+
+			// a route that accepts the format matches the path without the suffix first
+			if (format != null && formatPathLength >= minLengths[i] && formatPathLength >= prefixLengths[i] && routes[i].getPathPattern().acceptsFormat(format)) {
+				if (formatPath == null) {
+					formatPath = path.substring(0, formatPathLength);
+				}
+				Map<String, String> parameters = routes[i].match(host, formatPath, method);
+				if (parameters != null) {
+					parameters.put(PathPattern.FORMAT_PARAMETER, format);
+					return new RequestMatch(routes[i], parameters);
+				}
+			}
+
+			if (length >= minLengths[i]) {
+				Map<String, String> parameters = routes[i].match(host, path, method);
+				if (parameters != null) {
+					return new RequestMatch(routes[i], parameters);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the rank of the prefix of the length at the index that the path
+	 * starts with, or {@link #NO_PREFIX}.
+	 * @param hash the hash of the path's first characters, up to the length
+	 */
+	private int findPrefix(String path, int hash, int lengthIndex) {
+		int start = lookupStarts[lengthIndex];
+		int end = lookupStarts[lengthIndex + 1];
+		int low = start;
+		int high = end - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (lookupHashes[middle] < hash) {
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+
+		// compare each prefix with the hash
+		for (int i = low; i < end && lookupHashes[i] == hash; i++) {
+			if (startsWith(path, lookupRanks[i])) {
+				return lookupRanks[i];
+			}
+		}
+		return NO_PREFIX;
+	}
+
+	private boolean startsWith(String path, int rank) {
+		int offset = literalOffsets[rank];
+		for (int i = 0, length = literalOffsets[rank + 1] - offset; i < length; i++) {
+			if (path.charAt(i) != literals[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,144 @@
+package com.ryanberdeen.routes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Selects the table of routes that can match a host before their paths are
+ * tested. Exact hosts are looked up in a hash table; other hosts are looked
+ * up in a trie of the domains of wildcard patterns, keyed by label from the
+ * right. Each table holds, in scan order, every route whose host pattern can
+ * match the host, along with the routes that have no host pattern, so the
+ * routes without a host pattern are compiled into every table.
+ */
+final class HostDispatcher {
+	/** The routes without a host pattern, used if no other table applies. */
+	private final CompiledRouteTable defaultTable;
+
+	/** Whether any route has a host pattern. */
+	private final boolean hasHostPatterns;
+
+	private final HashMap<String, CompiledRouteTable> exactHostTables = new HashMap<String, CompiledRouteTable>();
+	private final DomainNode root = new DomainNode();
+
+	/**
+	 * @param routes the routes, in scan order
+	 */
+	HostDispatcher(Route[] routes) {
+		ArrayList<Route> defaultRoutes = new ArrayList<Route>();
+		for (Route route : routes) {
+			HostPattern hostPattern = route.getHostPattern();
+			if (hostPattern == null) {
+				defaultRoutes.add(route);
+			}
+			else if (hostPattern.isExact()) {
+				exactHostTables.put(hostPattern.getDomain(), null);
+			}
+			else {
+				getNode(hostPattern.getDomain()).hasWildcard = true;
+			}
+		}
+		hasHostPatterns = defaultRoutes.size() < routes.length;
+		defaultTable = hasHostPatterns ? new CompiledRouteTable(defaultRoutes.toArray(new Route[defaultRoutes.size()])) : new CompiledRouteTable(routes);
+
+		for (Map.Entry<String, CompiledRouteTable> entry : exactHostTables.entrySet()) {
+			entry.setValue(createTable(routes, entry.getKey()));
+		}
+		prepareNode(root, routes);
+	}
+
+	private DomainNode getNode(String domain) {
+		DomainNode node = root;
+		int end = domain.length();
+		while (end > 0) {
+			int start = domain.lastIndexOf('.', end - 1) + 1;
+			String label = domain.substring(start, end);
+			DomainNode child = node.children.get(label);
+			if (child == null) {
+				child = new DomainNode();
+				child.domain = node == root ? label : label + '.' + node.domain;
+				node.children.put(label, child);
+			}
+			node = child;
+			end = start - 1;
+		}
+		return node;
+	}
+
+	private void prepareNode(DomainNode node, Route[] routes) {
+		if (node.hasWildcard) {
+			// any host under the domain; it has at least one more label
+			node.table = createTable(routes, "*." + node.domain);
+		}
+		for (DomainNode child : node.children.values()) {
+			prepareNode(child, routes);
+		}
+	}
+
+	/**
+	 * Returns a table of the routes whose host patterns match the host.
+	 */
+	private static CompiledRouteTable createTable(Route[] routes, String host) {
+		ArrayList<Route> result = new ArrayList<Route>();
+		for (Route route : routes) {
+			HostPattern hostPattern = route.getHostPattern();
+			if (hostPattern == null || hostPattern.match(host) != null) {
+				result.add(route);
+			}
+		}
+		return new CompiledRouteTable(result.toArray(new Route[result.size()]));
+	}
+
+	/**
+	 * Returns the table of the routes that can match the host.
+	 * @param host a {@link HostPattern#normalize(String) normalized} host, or
+	 * <code>null</code>
+	 */
+	CompiledRouteTable getTable(String host) {
+		if (!hasHostPatterns || host == null) {
+			return defaultTable;
+		}
+
+		CompiledRouteTable table = exactHostTables.get(host);
+		if (table != null) {
+			return table;
+		}
+
+		table = defaultTable;
+		DomainNode node = root;
+		int end = host.length();
+		while (end > 0) {
+			int start = host.lastIndexOf('.', end - 1) + 1;
+			node = node.children.get(host.substring(start, end));
+			if (node == null || start == 0) {
+				// wildcards only match subdomains
+				break;
+			}
+			if (node.table != null) {
+				table = node.table;
+			}
+			end = start - 1;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the match of the first route that matches the request.
+	 * @param host a {@link HostPattern#normalize(String) normalized} host, or
+	 * <code>null</code>
+	 * @param format the format suffix of the path, or <code>null</code>
+	 */
+	RequestMatch match(String host, String method, String path, String format) {
+		return getTable(host).match(host, method, path, format);
+	}
+
+	private static class DomainNode {
+		private String domain;
+		private boolean hasWildcard;
+		private final HashMap<String, DomainNode> children = new HashMap<String, DomainNode>(4);
+
+		/** The routes that can match subdomains of the domain, if it has a wildcard. */
+		private CompiledRouteTable table;
+	}
+}
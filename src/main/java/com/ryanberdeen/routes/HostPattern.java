@@ -0,0 +1,112 @@
+package com.ryanberdeen.routes;
+
+/**
+ * Matches the host of a request. A pattern is an exact host, such as
+ * <code>example.com</code>; a wildcard, such as <code>*.example.com</code>,
+ * which matches any subdomain of the domain; or a parameter, such as
+ * <code>:subdomain.example.com</code>, which also matches any subdomain and
+ * captures it as the named parameter. Hosts are compared ignoring case.
+ */
+public class HostPattern {
+	private static final String WILDCARD_PREFIX = "*.";
+
+	private String pattern;
+	private String domain;
+	private boolean exact;
+	private String parameterName;
+
+	private HostPattern(String pattern, String domain, boolean exact, String parameterName) {
+		this.pattern = pattern;
+		this.domain = domain;
+		this.exact = exact;
+		this.parameterName = parameterName;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the pattern has no domain
+	 */
+	public static HostPattern parse(String pattern) {
+		String lowerCasePattern = pattern.toLowerCase();
+		if (lowerCasePattern.startsWith(WILDCARD_PREFIX)) {
+			return new HostPattern(pattern, checkDomain(pattern, lowerCasePattern.substring(WILDCARD_PREFIX.length())), false, null);
+		}
+		else if (lowerCasePattern.startsWith(":")) {
+			int dot = pattern.indexOf('.');
+			if (dot < 2) {
+				throw new IllegalArgumentException("Invalid host pattern " + pattern);
+			}
+			return new HostPattern(pattern, checkDomain(pattern, lowerCasePattern.substring(dot + 1)), false, pattern.substring(1, dot));
+		}
+		else {
+			return new HostPattern(pattern, checkDomain(pattern, lowerCasePattern), true, null);
+		}
+	}
+
+	private static String checkDomain(String pattern, String domain) {
+		if (domain.length() == 0 || domain.startsWith(".") || domain.indexOf('*') != -1 || domain.indexOf(':') != -1) {
+			throw new IllegalArgumentException("Invalid host pattern " + pattern);
+		}
+		return domain;
+	}
+
+	/**
+	 * Converts the host to lower case and removes the port and any trailing dot.
+	 */
+	public static String normalize(String host) {
+		int end = host.length();
+		int colon = host.lastIndexOf(':');
+		if (colon != -1 && host.indexOf(']') < colon) {
+			end = colon;
+		}
+		if (end > 0 && host.charAt(end - 1) == '.') {
+			end--;
+		}
+		return host.substring(0, end).toLowerCase();
+	}
+
+	/**
+	 * Tests if the pattern matches only its domain.
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Returns the host matched by an exact pattern, or the domain whose
+	 * subdomains are matched by a wildcard or parameter pattern.
+	 */
+	public String getDomain() {
+		return domain;
+	}
+
+	/**
+	 * Returns the name of the parameter the subdomain is captured as, or
+	 * <code>null</code> if the subdomain is not captured.
+	 */
+	public String getParameterName() {
+		return parameterName;
+	}
+
+	/**
+	 * Returns the subdomain matched in the host, the empty string if an exact
+	 * pattern matches the host, or <code>null</code> if the pattern does not
+	 * match.
+	 * @param host a {@link #normalize(String) normalized} host
+	 */
+	public String match(String host) {
+		if (exact) {
+			return host.equals(domain) ? "" : null;
+		}
+
+		int subdomainLength = host.length() - domain.length() - 1;
+		if (subdomainLength > 0 && host.endsWith(domain) && host.charAt(subdomainLength) == '.') {
+			return host.substring(0, subdomainLength);
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
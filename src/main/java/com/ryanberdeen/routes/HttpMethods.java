@@ -0,0 +1,86 @@
+package com.ryanberdeen.routes;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Represents sets of HTTP methods as bitmasks. Each standard method has a
+ * bit; every other method shares {@link #OTHER}, and must be checked against
+ * the set of method names.
+ */
+final class HttpMethods {
+	private static final String[] STANDARD_METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "TRACE", "PATCH", "CONNECT"};
+
+	static final int OTHER = 1 << 31;
+
+	/** Every method, standard or not. */
+	static final int ANY = -1;
+
+	private HttpMethods() {}
+
+	/**
+	 * Returns the bit of the method, or {@link #OTHER} if it is not a standard method.
+	 */
+	static int bit(String method) {
+		if (method != null) {
+			for (int i = 0; i < STANDARD_METHODS.length; i++) {
+				if (STANDARD_METHODS[i].equals(method)) {
+					return 1 << i;
+				}
+			}
+		}
+		return OTHER;
+	}
+
+	/**
+	 * Returns the bits of the methods, or {@link #ANY} if <code>methods</code> is <code>null</code>.
+	 */
+	static int mask(Set<String> methods) {
+		if (methods == null) {
+			return ANY;
+		}
+
+		int mask = 0;
+		for (String method : methods) {
+			mask |= bit(method);
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the methods that are not standard methods, or <code>null</code> if there are none.
+	 */
+	static Set<String> getOtherMethods(Set<String> methods) {
+		if (methods == null || (mask(methods) & OTHER) == 0) {
+			return null;
+		}
+
+		HashSet<String> otherMethods = new HashSet<String>();
+		for (String method : methods) {
+			if (bit(method) == OTHER) {
+				otherMethods.add(method);
+			}
+		}
+		return otherMethods;
+	}
+
+	/**
+	 * Returns the methods in the mask and the other methods, or <code>null</code> for {@link #ANY}.
+	 */
+	static Set<String> toSet(int mask, Set<String> otherMethods) {
+		if (mask == ANY) {
+			return null;
+		}
+
+		HashSet<String> methods = new HashSet<String>();
+		for (int i = 0; i < STANDARD_METHODS.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				methods.add(STANDARD_METHODS[i]);
+			}
+		}
+		if (otherMethods != null) {
+			methods.addAll(otherMethods);
+		}
+		return methods;
+	}
+}
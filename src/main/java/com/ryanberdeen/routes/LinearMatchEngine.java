@@ -0,0 +1,56 @@
+package com.ryanberdeen.routes;
+
+import java.util.List;
+import java.util.Map;
+
+import com.ryanberdeen.routes.path.PathPattern;
+
+/**
+ * The reference match engine. Tests each route in turn, returning the first
+ * match. It has no other logic, so that other engines, such as
+ * {@link CompiledMatchEngine}, can be verified against it with a
+ * {@link ShadowMatchEngine}.
+ */
+public class LinearMatchEngine implements MatchEngine {
+	/** The routes, in the order in which they are tested. */
+	private volatile Route[] routes = new Route[0];
+
+	public void prepare(List<Route> routes) {
+		this.routes = routes.toArray(new Route[routes.size()]);
+	}
+
+	/**
+	 * Changes the order in which routes are tested. The new order must not
+	 * change which route matches a request.
+	 */
+	void setScanOrder(Route[] scanOrder) {
+		routes = scanOrder;
+	}
+
+	/**
+	 * Returns the routes, in the order in which they are tested.
+	 */
+	Route[] getScanOrder() {
+		return routes;
+	}
+
+	public RequestMatch match(String host, String method, String path, String format) {
+		String formatPath = format != null ? path.substring(0, path.length() - format.length() - 1) : null;
+		for (Route route : routes) {
+			if (formatPath != null && route.getPathPattern().acceptsFormat(format)) {
+				Map<String, String> parameters = route.match(host, formatPath, method);
+				if (parameters != null) {
+					parameters.put(PathPattern.FORMAT_PARAMETER, format);
+					return new RequestMatch(route, parameters);
+				}
+			}
+
+			Map<String, String> parameters = route.match(host, path, method);
+			if (parameters != null) {
+				return new RequestMatch(route, parameters);
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,31 @@
+package com.ryanberdeen.routes;
+
+import java.util.List;
+
+/**
+ * Finds the route that matches a request. A route set delegates matching to
+ * its engine, which must return the same match as {@link LinearMatchEngine},
+ * the reference engine: the first route, in order, that matches the host,
+ * method and path.
+ *
+ * <p>Engines are used from many threads at once, and may be prepared again
+ * while in use.</p>
+ */
+public interface MatchEngine {
+	/**
+	 * Prepares to match the prepared routes, in order.
+	 */
+	public void prepare(List<Route> routes);
+
+	/**
+	 * Returns the match of the first route that matches the request, or
+	 * <code>null</code> if no route matches. Routes with host patterns only
+	 * match if the host is provided.
+	 * @param host a {@link HostPattern#normalize(String) normalized} host, or
+	 * <code>null</code>
+	 * @param format the format suffix of the path, or <code>null</code>; a
+	 * route that accepts the format matches the path without the suffix, with
+	 * the format added to the parameters, before the whole path
+	 */
+	public RequestMatch match(String host, String method, String path, String format);
+}
@@ -0,0 +1,161 @@
+package com.ryanberdeen.routes;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.ryanberdeen.routes.path.SymbolTable;
+
+/**
+ * An immutable map of parameter names to values, stored as parallel arrays
+ * sorted by name.
+ */
+final class ParameterTable extends AbstractMap<String, String> {
+	static final ParameterTable EMPTY = new ParameterTable(new String[0], new String[0]);
+
+	private final String[] names;
+	private final String[] values;
+
+	private ParameterTable(String[] names, String[] values) {
+		this.names = names;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a table with the parameters, interning the names and values.
+	 */
+	static ParameterTable create(Map<String, String> parameters, SymbolTable symbols) {
+		if (parameters.isEmpty()) {
+			return EMPTY;
+		}
+
+		String[] names = parameters.keySet().toArray(new String[parameters.size()]);
+		Arrays.sort(names);
+		String[] values = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			values[i] = symbols.intern(parameters.get(names[i]));
+			names[i] = symbols.intern(names[i]);
+		}
+		return new ParameterTable(names, values);
+	}
+
+	private int indexOf(Object name) {
+		return name instanceof String ? Arrays.binarySearch(names, name) : -1;
+	}
+
+	String getName(int index) {
+		return names[index];
+	}
+
+	String getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Puts every parameter in the map.
+	 */
+	void putAllTo(Map<String, String> map) {
+		for (int i = 0; i < names.length; i++) {
+			map.put(names[i], values[i]);
+		}
+	}
+
+	/**
+	 * Returns the estimated size of the table in bytes, not counting the names
+	 * and values.
+	 */
+	long getFootprint() {
+		return this == EMPTY ? 0 : RouteFootprint.OBJECT + 2 * RouteFootprint.array(names.length);
+	}
+
+	@Override
+	public String get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return names.length;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+			@Override
+			public int size() {
+				return names.length;
+			}
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new Iterator<Map.Entry<String, String>>() {
+					private int index;
+
+					public boolean hasNext() {
+						return index < names.length;
+					}
+
+					public Map.Entry<String, String> next() {
+						if (index >= names.length) {
+							throw new NoSuchElementException();
+						}
+						return new Entry(index++);
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	private class Entry implements Map.Entry<String, String> {
+		private int index;
+
+		Entry(int index) {
+			this.index = index;
+		}
+
+		public String getKey() {
+			return names[index];
+		}
+
+		public String getValue() {
+			return values[index];
+		}
+
+		public String setValue(String value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry<?, ?>)) {
+				return false;
+			}
+			Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+			return names[index].equals(that.getKey()) && (values[index] == null ? that.getValue() == null : values[index].equals(that.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return names[index].hashCode() ^ (values[index] == null ? 0 : values[index].hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return names[index] + "=" + values[index];
+		}
+	}
+}
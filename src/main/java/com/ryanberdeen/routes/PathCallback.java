@@ -0,0 +1,13 @@
+package com.ryanberdeen.routes;
+
+/**
+ * Receives paths generated by {@link RouteSet#getPaths(java.util.Map, java.util.Map, String, Iterable, PathCallback)}.
+ */
+public interface PathCallback {
+	/**
+	 * Called once for each generated path.
+	 * @param value the value of the varying parameter used to generate the path
+	 * @param path the generated path
+	 */
+	public void handlePath(Object value, String path);
+}
@@ -1,16 +1,29 @@
 package com.ryanberdeen.routes;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+import com.ryanberdeen.routes.path.ParameterType;
 
 public class RequestMatch {
 	private Route route;
 	private Map<String, String> parameters;
 	private Map<String, String> contextParameters;
 
-	RequestMatch(Route route, Map<String, String> parameters, Map<String, String> contextParameters) {
+	/** The parsed values of the typed parameters. */
+	private long[] typedValues;
+
+	public RequestMatch(Route route, Map<String, String> parameters) {
 		this.route = route;
 		this.parameters = parameters;
-		this.contextParameters = contextParameters;
+		if (parameters instanceof TypedParameterMap) {
+			typedValues = ((TypedParameterMap) parameters).getTypedValues();
+		}
 	}
 
 	public Route getRoute() {
@@ -21,7 +34,188 @@ public class RequestMatch {
 		return parameters;
 	}
 
+	/**
+	 * Returns the value of an <code>int</code> parameter, parsed when the
+	 * request was matched.
+	 * @throws IllegalArgumentException if the parameter is not an <code>int</code> parameter
+	 * @throws IllegalStateException if the parameter was not matched
+	 */
+	public int getInt(String name) {
+		return (int) getTypedValues()[getTypedValueOffset(name, ParameterType.INT, ParameterType.INT)];
+	}
+
+	/**
+	 * Returns the value of a <code>long</code> or <code>int</code> parameter,
+	 * parsed when the request was matched.
+	 * @throws IllegalArgumentException if the parameter is not a <code>long</code> or <code>int</code> parameter
+	 * @throws IllegalStateException if the parameter was not matched
+	 */
+	public long getLong(String name) {
+		return getTypedValues()[getTypedValueOffset(name, ParameterType.LONG, ParameterType.INT)];
+	}
+
+	/**
+	 * Returns the value of a UUID parameter, parsed when the request was matched.
+	 * @throws IllegalArgumentException if the parameter is not a UUID parameter
+	 * @throws IllegalStateException if the parameter was not matched
+	 */
+	public UUID getUUID(String name) {
+		int offset = getTypedValueOffset(name, ParameterType.UUID, ParameterType.UUID);
+		long[] typedValues = getTypedValues();
+		return new UUID(typedValues[offset], typedValues[offset + 1]);
+	}
+
+	private int getTypedValueOffset(String name, ParameterType type, ParameterType alternativeType) {
+		int index = route.getTypedParameterIndex(name);
+		ParameterType parameterType = index >= 0 ? route.getTypedParameterType(index) : null;
+		if (parameterType != type && parameterType != alternativeType) {
+			throw new IllegalArgumentException("Parameter [" + name + "] is not of type " + type);
+		}
+		if (parameters.get(name) == null) {
+			throw new IllegalStateException("No value for [" + name + "]");
+		}
+		return route.getTypedParameterOffset(index);
+	}
+
+	private long[] getTypedValues() {
+		if (typedValues == null) {
+			// the match engine did not keep the values parsed by the route
+			typedValues = route.parseTypedValues(parameters);
+			if (typedValues == null) {
+				throw new IllegalStateException("Matched parameters do not have their types: " + parameters);
+			}
+		}
+		return typedValues;
+	}
+
+	/**
+	 * Returns the matched parameters that are context parameters. The result
+	 * is a read-only view of the parameters, limited to the context parameter
+	 * names of the route.
+	 */
 	public Map<String, String> getContextParameters() {
+		if (contextParameters == null) {
+			contextParameters = new ContextParameterMap();
+		}
 		return contextParameters;
 	}
+
+	private class ContextParameterMap extends AbstractMap<String, String> {
+		private String[] names = route.getContextParameterNames();
+		private EntrySet entrySet;
+
+		private boolean isContextParameterName(Object key) {
+			for (String name : names) {
+				if (name.equals(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String get(Object key) {
+			return isContextParameterName(key) ? parameters.get(key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return isContextParameterName(key) && parameters.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (String name : names) {
+				if (parameters.containsKey(name)) {
+					size++;
+				}
+			}
+			return size;
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			if (entrySet == null) {
+				entrySet = new EntrySet();
+			}
+			return entrySet;
+		}
+
+		private class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return ContextParameterMap.this.size();
+			}
+		}
+
+		private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+			private int index = advance(0);
+
+			private int advance(int index) {
+				while (index < names.length && !parameters.containsKey(names[index])) {
+					index++;
+				}
+				return index;
+			}
+
+			public boolean hasNext() {
+				return index < names.length;
+			}
+
+			public Map.Entry<String, String> next() {
+				if (index >= names.length) {
+					throw new NoSuchElementException();
+				}
+				String name = names[index];
+				index = advance(index + 1);
+				return new ContextParameterEntry(name, parameters.get(name));
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+	}
+
+	private static class ContextParameterEntry implements Map.Entry<String, String> {
+		private String key;
+		private String value;
+
+		ContextParameterEntry(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public String setValue(String value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry<?, ?>)) {
+				return false;
+			}
+			Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+			return key.equals(that.getKey()) && (value == null ? that.getValue() == null : value.equals(that.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+	}
 }
@@ -1,12 +1,22 @@
 package com.ryanberdeen.routes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.ParameterType;
 import com.ryanberdeen.routes.path.PathPattern;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.PercentEncoder;
+import com.ryanberdeen.routes.path.SymbolTable;
 
 public class Route {
 	public static final Map<String, String> NO_PARAMETER_VALUES = Collections.emptyMap();
@@ -20,13 +30,49 @@ public class Route {
 	 * These parameters must be present in {@link #match(Map, Map)} for the
 	 * route to match.
 	 */
-	private ArrayList<String> requiredPathParameterNames;
-	private HashMap<String, String> requiredStaticParameterValues;
-	private HashMap<String, String> optionalStaticParameterValues;
-	private Set<String> methods;
-	private Set<String> excludedMethods;
+	private String[] requiredPathParameterNames;
+	private ParameterTable requiredStaticParameterValues;
+	private ParameterTable optionalStaticParameterValues;
+
+	/**
+	 * The parameters that are used by the path or the static parameters,
+	 * sorted. All other parameters are added to the query string of generated
+	 * paths.
+	 */
+	private String[] pathParameterNames;
+
+	/**
+	 * The names of the matched parameters that are context parameters.
+	 */
+	private String[] contextParameterNames;
+
+	/** The allowed and forbidden methods, as {@link HttpMethods} masks. */
+	private int methodMask = HttpMethods.ANY;
+	private int excludedMethodMask;
+
+	/** The allowed and forbidden methods that are not standard methods, if any. */
+	private Set<String> otherMethods;
+	private Set<String> otherExcludedMethods;
+
 	private PathPattern pathPattern;
 
+	/** The names of the path parameters that have types, sorted, with their
+	 * types and the offsets of their parsed values. */
+	private String[] typedParameterNames = new String[0];
+	private ParameterType[] typedParameterTypes;
+	private int[] typedParameterOffsets;
+	private int typedValueCount;
+
+	/** The parsed static and default values of the typed parameters, used
+	 * when the path does not provide a value. */
+	private long[] staticTypedValues;
+
+	/** The hosts the route matches, or <code>null</code> for any host. */
+	private HostPattern hostPattern;
+
+	/** The position of the route in its route set. */
+	private int index;
+
 	public Route() {
 		staticParameterValues = NO_PARAMETER_VALUES;
 		defaultStaticParameterValues = NO_PARAMETER_VALUES;
@@ -38,6 +84,22 @@ public class Route {
 
 	public void setPathPattern(PathPattern pathPattern) {
 		this.pathPattern = pathPattern;
+
+		TreeMap<String, ParameterType> types = new TreeMap<String, ParameterType>();
+		for (PathSegment segment : pathPattern.getPathSegments()) {
+			if (segment instanceof ParameterSegment && ((ParameterSegment) segment).getType() != null) {
+				types.put(((ParameterSegment) segment).getName(), ((ParameterSegment) segment).getType());
+			}
+		}
+
+		typedParameterNames = types.keySet().toArray(new String[types.size()]);
+		typedParameterTypes = types.values().toArray(new ParameterType[types.size()]);
+		typedParameterOffsets = new int[types.size()];
+		typedValueCount = 0;
+		for (int i = 0; i < typedParameterTypes.length; i++) {
+			typedParameterOffsets[i] = typedValueCount;
+			typedValueCount += typedParameterTypes[i].getSlotCount();
+		}
 	}
 
 	/**
@@ -60,29 +122,78 @@ public class Route {
 		this.defaultStaticParameterValues = defaultStaticParameters;
 	}
 
+	/**
+	 * Sets the hosts the route matches. The default matches any host.
+	 */
+	public void setHostPattern(HostPattern hostPattern) {
+		this.hostPattern = hostPattern;
+	}
+
+	public HostPattern getHostPattern() {
+		return hostPattern;
+	}
+
 	/**
 	 * Sets the allowed methods. The default allows any method.
 	 */
 	public void setMethods(Set<String> methods) {
-		this.methods = methods != null && methods.size() > 0 ? methods : null;
+		methods = methods != null && methods.size() > 0 ? methods : null;
+		methodMask = HttpMethods.mask(methods);
+		otherMethods = HttpMethods.getOtherMethods(methods);
 	}
 
 	/**
 	 * Sets the forbidden methods. The default allows any method.
 	 */
 	public void setExcludedMethods(Set<String> excludedMethods) {
-		this.excludedMethods = excludedMethods != null && excludedMethods.size() > 0 ? excludedMethods : null;
+		excludedMethods = excludedMethods != null && excludedMethods.size() > 0 ? excludedMethods : null;
+		excludedMethodMask = excludedMethods != null ? HttpMethods.mask(excludedMethods) : 0;
+		otherExcludedMethods = HttpMethods.getOtherMethods(excludedMethods);
 	}
 
 	/**
 	 * Determines what parameters are required based on the route's parameters
-	 * and the path's parameters.
+	 * and the path's parameters. The route will have no context parameters.
 	 */
 	public void prepare() {
-		requiredStaticParameterValues = new HashMap<String, String>(staticParameterValues);
-		optionalStaticParameterValues = new HashMap<String, String>();
+		Set<String> noContextParameterNames = Collections.emptySet();
+		prepare(noContextParameterNames);
+	}
+
+	/**
+	 * Determines what parameters are required based on the route's parameters
+	 * and the path's parameters, and which of the parameters matched by the
+	 * route are context parameters.
+	 */
+	public void prepare(Set<String> contextParameterNames) {
+		prepare(contextParameterNames, new SymbolTable());
+	}
 
-		requiredPathParameterNames = new ArrayList<String>();
+	/**
+	 * Prepares the route, storing its parameters in compact immutable tables
+	 * with names and values interned in the symbol table.
+	 */
+	public void prepare(Set<String> contextParameterNames, SymbolTable symbols) {
+		HashMap<String, String> requiredStaticParameterValues = new HashMap<String, String>(staticParameterValues);
+		HashMap<String, String> optionalStaticParameterValues = new HashMap<String, String>();
+
+		ArrayList<String> requiredPathParameterNames = new ArrayList<String>();
+
+		HashSet<String> pathParameterNames = new HashSet<String>(pathPattern.getParameterNames());
+		pathParameterNames.addAll(staticParameterValues.keySet());
+		pathParameterNames.addAll(defaultStaticParameterValues.keySet());
+		if (pathPattern.getFormats() != null) {
+			// the format is generated as an extension rather than a query parameter
+			pathParameterNames.add(PathPattern.FORMAT_PARAMETER);
+		}
+
+		ArrayList<String> matchedContextParameterNames = new ArrayList<String>();
+		for (String parameterName : pathParameterNames) {
+			if (contextParameterNames.contains(parameterName)) {
+				matchedContextParameterNames.add(parameterName);
+			}
+		}
+		this.contextParameterNames = intern(matchedContextParameterNames, symbols);
 
 		for (String parameterName : pathPattern.getParameterNames()) {
 			// parameters that occur in the path don't have a required static value
@@ -104,22 +215,94 @@ public class Route {
 				optionalStaticParameterValues.put(parameterName, defaultParameterValue);
 			}
 		}
+
+		this.requiredPathParameterNames = intern(requiredPathParameterNames, symbols);
+		this.pathParameterNames = intern(pathParameterNames, symbols);
+		Arrays.sort(this.pathParameterNames);
+		this.requiredStaticParameterValues = ParameterTable.create(requiredStaticParameterValues, symbols);
+		this.optionalStaticParameterValues = ParameterTable.create(optionalStaticParameterValues, symbols);
+		staticParameterValues = ParameterTable.create(staticParameterValues, symbols);
+		defaultStaticParameterValues = ParameterTable.create(defaultStaticParameterValues, symbols);
+		name = symbols.intern(name);
+		for (int i = 0; i < typedParameterNames.length; i++) {
+			typedParameterNames[i] = symbols.intern(typedParameterNames[i]);
+		}
+		pathPattern.intern(symbols);
+		staticTypedValues = parseStaticTypedValues();
+	}
+
+	/**
+	 * Parses the static and default values of the typed parameters.
+	 * @throws IllegalArgumentException if a value does not have its parameter's type
+	 */
+	private long[] parseStaticTypedValues() {
+		long[] typedValues = new long[typedValueCount];
+		for (int i = 0; i < typedParameterNames.length; i++) {
+			String value = staticParameterValues.get(typedParameterNames[i]);
+			if (value == null) {
+				value = defaultStaticParameterValues.get(typedParameterNames[i]);
+			}
+			if (value != null && !typedParameterTypes[i].parse(value, typedValues, typedParameterOffsets[i])) {
+				throw new IllegalArgumentException("Value [" + value + "] of parameter [" + typedParameterNames[i] + "] is not of type " + typedParameterTypes[i]);
+			}
+		}
+		return typedValues;
+	}
+
+	private static String[] intern(Collection<String> strings, SymbolTable symbols) {
+		String[] result = new String[strings.size()];
+		int i = 0;
+		for (String string : strings) {
+			result[i++] = symbols.intern(string);
+		}
+		return result;
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Returns the names of the parameters matched by this route that are
+	 * context parameters.
+	 */
+	public String[] getContextParameterNames() {
+		return contextParameterNames;
+	}
+
 	/**
 	 * Matches the path and request against the route. The path must match the
 	 * path pattern, and the request method must be included an allowed and not
-	 * excluded method.
+	 * excluded method. A route with a host pattern does not match.
 	 */
 	public Map<String, String> match(String path, String method) {
-		if (methods != null && !methods.contains(method)) {
+		return hostPattern == null ? matchPath(path, method) : null;
+	}
+
+	/**
+	 * Matches the host, path and request against the route. If the route has
+	 * a host pattern, it must match the host; a captured subdomain is added to
+	 * the parameters.
+	 * @param host a {@link HostPattern#normalize(String) normalized} host
+	 */
+	public Map<String, String> match(String host, String path, String method) {
+		if (hostPattern == null) {
+			return matchPath(path, method);
+		}
+
+		String subdomain = host != null ? hostPattern.match(host) : null;
+		if (subdomain == null) {
 			return null;
 		}
-		if (excludedMethods != null && methods.contains(method)) {
+		Map<String, String> result = matchPath(path, method);
+		if (result != null && hostPattern.getParameterName() != null) {
+			result.put(hostPattern.getParameterName(), subdomain);
+		}
+		return result;
+	}
+
+	private Map<String, String> matchPath(String path, String method) {
+		if (!allowsMethod(method)) {
 			return null;
 		}
 
@@ -127,14 +310,85 @@ public class Route {
 
 		Map<String, String> pathMatches = pathPattern.match(path);
 		if (pathMatches != null) {
-			result = new HashMap<String, String>(defaultStaticParameterValues);
-			result.putAll(staticParameterValues);
+			if (typedParameterNames.length == 0) {
+				result = new HashMap<String, String>();
+			}
+			else {
+				long[] typedValues = parseTypedValues(pathMatches);
+				if (typedValues == null) {
+					return null;
+				}
+				result = new TypedParameterMap(typedValues);
+			}
+			putAll(defaultStaticParameterValues, result);
+			putAll(staticParameterValues, result);
 			result.putAll(pathMatches);
 		}
 
 		return result;
 	}
 
+	/**
+	 * Checks the values of the typed parameters. Parameters without a value
+	 * have their parsed static or default values.
+	 * @return the parsed values, or <code>null</code> if a value does not have its type
+	 */
+	long[] parseTypedValues(Map<String, String> parameters) {
+		long[] typedValues = staticTypedValues != null ? staticTypedValues.clone() : new long[typedValueCount];
+		for (int i = 0; i < typedParameterNames.length; i++) {
+			String value = parameters.get(typedParameterNames[i]);
+			if (value != null && !typedParameterTypes[i].parse(value, typedValues, typedParameterOffsets[i])) {
+				return null;
+			}
+		}
+		return typedValues;
+	}
+
+	/**
+	 * Returns the index of the typed parameter, or a negative number if the
+	 * parameter has no type.
+	 */
+	int getTypedParameterIndex(String name) {
+		return Arrays.binarySearch(typedParameterNames, name);
+	}
+
+	ParameterType getTypedParameterType(int index) {
+		return typedParameterTypes[index];
+	}
+
+	int getTypedParameterOffset(int index) {
+		return typedParameterOffsets[index];
+	}
+
+	private static void putAll(Map<String, String> parameters, Map<String, String> result) {
+		if (parameters instanceof ParameterTable) {
+			((ParameterTable) parameters).putAllTo(result);
+		}
+		else {
+			result.putAll(parameters);
+		}
+	}
+
+	/**
+	 * Tests if the method is allowed and not excluded.
+	 */
+	public boolean allowsMethod(String method) {
+		int bit = HttpMethods.bit(method);
+		if (bit != HttpMethods.OTHER) {
+			return (methodMask & bit) != 0 && (excludedMethodMask & bit) == 0;
+		}
+		return (methodMask == HttpMethods.ANY || (otherMethods != null && otherMethods.contains(method)))
+			&& (otherExcludedMethods == null || !otherExcludedMethods.contains(method));
+	}
+
+	int getMethodMask() {
+		return methodMask;
+	}
+
+	int getExcludedMethodMask() {
+		return excludedMethodMask;
+	}
+
 	/**
 	 * Matches parameters against the parameters of the route. The parameters
 	 * must include all required parameters, and all static parameters must
@@ -149,32 +403,32 @@ public class Route {
 			}
 		}
 
-		int matchCount = requiredPathParameterNames.size();
+		int matchCount = requiredPathParameterNames.length;
 
 		// make sure all static parameters match
-		for (Map.Entry<String, String> staticParameter : requiredStaticParameterValues.entrySet()) {
-			String key = staticParameter.getKey();
+		for (int i = 0, size = requiredStaticParameterValues.size(); i < size; i++) {
+			String key = requiredStaticParameterValues.getName(i);
 			Object parameterValue = parameters.get(key);
 			if (parameterValue == null) {
 				parameterValue = contextParameters.get(key);
 			}
 
-			if (!staticParameter.getValue().equals(parameterValue)) {
+			if (!requiredStaticParameterValues.getValue(i).equals(parameterValue)) {
 				return -1;
 			}
 
 			matchCount++;
 		}
 
-		for (Map.Entry<String, String> optionalStaticParameter: optionalStaticParameterValues.entrySet()) {
-			String key = optionalStaticParameter.getKey();
+		for (int i = 0, size = optionalStaticParameterValues.size(); i < size; i++) {
+			String key = optionalStaticParameterValues.getName(i);
 			Object parameterValue = parameters.get(key);
 			if (parameterValue == null) {
 				parameterValue = contextParameters.get(key);
 			}
 
 			if (parameterValue != null) {
-				if (!optionalStaticParameter.getValue().equals(parameterValue)) {
+				if (!optionalStaticParameterValues.getValue(i).equals(parameterValue)) {
 					return -1;
 				}
 
@@ -185,11 +439,164 @@ public class Route {
 		return matchCount;
 	}
 
+	/**
+	 * Builds a path using the parameters. Parameters not used by the path or
+	 * the static parameters are appended as the query string.
+	 */
 	public String buildPath(Map<String, Object> parameters, Map<String, String> contextParameters) {
-		return pathPattern.buildPath(parameters, staticParameterValues, contextParameters);
+		return buildPath(new StringBuilder(), parameters, contextParameters).toString();
+	}
+
+	/**
+	 * Builds a path using the parameters, appending it to the builder.
+	 * @return the builder
+	 */
+	public StringBuilder buildPath(StringBuilder result, Map<String, Object> parameters, Map<String, String> contextParameters) {
+		pathPattern.buildPath(result, parameters, staticParameterValues, contextParameters);
+
+		char separator = '?';
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			String name = parameter.getKey();
+			Object value = parameter.getValue();
+			if (value == null || Arrays.binarySearch(pathParameterNames, name) >= 0) {
+				continue;
+			}
+
+			if (value instanceof String[]) {
+				for (String element : (String[]) value) {
+					separator = appendQueryParameter(result, separator, name, element);
+				}
+			}
+			else {
+				separator = appendQueryParameter(result, separator, name, value);
+			}
+		}
+
+		return result;
+	}
+
+	private static char appendQueryParameter(StringBuilder result, char separator, String name, Object value) {
+		if (value != null) {
+			result.append(separator);
+			PercentEncoder.QUERY_COMPONENT.encode(name, result);
+			result.append('=');
+			PercentEncoder.QUERY_COMPONENT.encode(value.toString(), result);
+			separator = '&';
+		}
+
+		return separator;
 	}
 
 	public PathPattern getPathPattern() {
 		return pathPattern;
 	}
+
+	/**
+	 * Returns the position of the route in the route set that prepared it.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
+	public Map<String, String> getStaticParameterValues() {
+		return staticParameterValues;
+	}
+
+	public Map<String, String> getDefaultStaticParameterValues() {
+		return defaultStaticParameterValues;
+	}
+
+	/**
+	 * Returns the names of the path parameters that must be provided to
+	 * generate a path. Available after {@link #prepare()}.
+	 */
+	public List<String> getRequiredPathParameterNames() {
+		return Collections.unmodifiableList(Arrays.asList(requiredPathParameterNames));
+	}
+
+	/**
+	 * Returns the static parameter values that must be provided to generate a
+	 * path. Available after {@link #prepare()}.
+	 */
+	public Map<String, String> getRequiredStaticParameterValues() {
+		return requiredStaticParameterValues;
+	}
+
+	/**
+	 * Returns the static parameter values that may be provided to generate a
+	 * path. Available after {@link #prepare()}.
+	 */
+	public Map<String, String> getOptionalStaticParameterValues() {
+		return optionalStaticParameterValues;
+	}
+
+	/**
+	 * Returns the allowed methods, or <code>null</code> if any method is allowed.
+	 */
+	public Set<String> getMethods() {
+		return HttpMethods.toSet(methodMask, otherMethods);
+	}
+
+	/**
+	 * Returns the forbidden methods, or <code>null</code> if no method is forbidden.
+	 */
+	public Set<String> getExcludedMethods() {
+		return excludedMethodMask != 0 ? HttpMethods.toSet(excludedMethodMask, otherExcludedMethods) : null;
+	}
+
+	/**
+	 * Returns the estimated size of the route's own data in bytes, not
+	 * counting names and values, which are shared through the symbol table,
+	 * or the regular expression.
+	 */
+	long getFootprint() {
+		long footprint = RouteFootprint.object(18) + RouteFootprint.array(requiredPathParameterNames.length)
+			+ 3 * RouteFootprint.array(typedParameterNames.length)
+			+ RouteFootprint.array(pathParameterNames.length) + RouteFootprint.array(contextParameterNames.length)
+			+ requiredStaticParameterValues.getFootprint() + optionalStaticParameterValues.getFootprint();
+		footprint += ((ParameterTable) staticParameterValues).getFootprint() + ((ParameterTable) defaultStaticParameterValues).getFootprint();
+		if (otherMethods != null) {
+			footprint += RouteFootprint.hashSet(otherMethods.size());
+		}
+		if (otherExcludedMethods != null) {
+			footprint += RouteFootprint.hashSet(otherExcludedMethods.size());
+		}
+		return footprint + getPathPatternFootprint() + RouteFootprint.array(pathPattern.getParameterNames().size());
+	}
+
+	/**
+	 * Returns the estimated size the route's data would have if it were
+	 * stored in hash maps, hash sets and lists.
+	 */
+	long getMapBasedFootprint() {
+		long footprint = RouteFootprint.object(18) + RouteFootprint.arrayList(requiredPathParameterNames.length)
+			+ RouteFootprint.hashSet(pathParameterNames.length) + RouteFootprint.array(contextParameterNames.length)
+			+ RouteFootprint.hashMap(requiredStaticParameterValues.size()) + RouteFootprint.hashMap(optionalStaticParameterValues.size())
+			+ RouteFootprint.hashMap(staticParameterValues.size()) + RouteFootprint.hashMap(defaultStaticParameterValues.size());
+		if (typedParameterNames.length > 0) {
+			footprint += RouteFootprint.hashMap(typedParameterNames.length);
+		}
+		Set<String> methods = getMethods();
+		if (methods != null) {
+			footprint += RouteFootprint.hashSet(methods.size());
+		}
+		Set<String> excludedMethods = getExcludedMethods();
+		if (excludedMethods != null) {
+			footprint += RouteFootprint.hashSet(excludedMethods.size());
+		}
+		return footprint + getPathPatternFootprint() + RouteFootprint.hashSet(pathPattern.getParameterNames().size());
+	}
+
+	/**
+	 * Returns the estimated size of the path pattern and its segments, not
+	 * counting its parameter names.
+	 */
+	private long getPathPatternFootprint() {
+		int segmentCount = pathPattern.getPathSegments().size();
+		return RouteFootprint.object(3) + RouteFootprint.arrayList(segmentCount) + segmentCount * RouteFootprint.object(4);
+	}
 }
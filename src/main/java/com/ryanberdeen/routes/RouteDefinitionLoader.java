@@ -0,0 +1,223 @@
+package com.ryanberdeen.routes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import com.ryanberdeen.routes.builder.RouteDefinitionParser;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+/**
+ * Loads route sets from route definition files, caching the routes built from
+ * each file on disk.
+ *
+ * <p>Definitions are parsed with {@link RouteDefinitionParser}. The routes
+ * built from a definition are written to the cache directory as a binary
+ * manifest named after the SHA-1 hash of the definition and of the build of
+ * the library, so loading an
+ * unchanged definition again, even in a new VM, reads the routes without
+ * parsing the definition or running the builders. Regular expressions are
+ * still compiled when the routes are first used. Unreadable cache entries are
+ * ignored and replaced. Entries written by another build of the library,
+ * which may expand definitions differently, are not used; the build is
+ * identified by hashing the library's jar or class files once per VM.</p>
+ *
+ * <p>Definitions that apply a template class are never cached, since the
+ * routes they build depend on code that can change while the definition
+ * stays the same.</p>
+ *
+ * <p>The returned route sets are not prepared.</p>
+ */
+public class RouteDefinitionLoader {
+	private static final String CACHE_SUFFIX = ".rtmf";
+	private static final String ENCODING = "UTF-8";
+
+	private static String libraryVersion;
+
+	private File cacheDirectory;
+	private String cacheVersion;
+
+	/**
+	 * @param cacheDirectory the directory to cache routes in, or
+	 * <code>null</code> to disable caching
+	 */
+	public RouteDefinitionLoader(File cacheDirectory) {
+		this(cacheDirectory, cacheDirectory != null ? getLibraryVersion() : null);
+	}
+
+	/**
+	 * @param cacheVersion identifies the code that builds the routes;
+	 * caching is disabled if it is <code>null</code>
+	 */
+	RouteDefinitionLoader(File cacheDirectory, String cacheVersion) {
+		this.cacheDirectory = cacheVersion != null ? cacheDirectory : null;
+		this.cacheVersion = cacheVersion;
+	}
+
+	/**
+	 * Returns the SHA-1 hash of the library's jar, or of its class files, or
+	 * <code>null</code> if they can't be read.
+	 */
+	static synchronized String getLibraryVersion() {
+		if (libraryVersion == null) {
+			try {
+				MessageDigest digest = MessageDigest.getInstance("SHA-1");
+				File location = new File(RouteSetBuilder.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				if (location.isFile()) {
+					update(digest, location);
+				}
+				else {
+					updateWithClassFiles(digest, location, "");
+				}
+				libraryVersion = toHex(digest.digest());
+			}
+			catch (Exception e) {
+				// without a version, routes are not cached
+				return null;
+			}
+		}
+		return libraryVersion;
+	}
+
+	private static void updateWithClassFiles(MessageDigest digest, File directory, String path) throws IOException {
+		String[] names = directory.list();
+		if (names == null) {
+			throw new IOException("Cannot list " + directory);
+		}
+		Arrays.sort(names);
+		for (String name : names) {
+			File file = new File(directory, name);
+			if (file.isDirectory()) {
+				updateWithClassFiles(digest, file, path + name + '/');
+			}
+			else if (name.endsWith(".class")) {
+				digest.update((path + name).getBytes(ENCODING));
+				update(digest, file);
+			}
+		}
+	}
+
+	private static void update(MessageDigest digest, File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			digest.update(readFully(in));
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	public RouteSet load(File definitionFile) throws IOException {
+		InputStream in = new FileInputStream(definitionFile);
+		try {
+			return load(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Loads a route set from a UTF-8 route definition.
+	 */
+	public RouteSet load(InputStream in) throws IOException {
+		byte[] definition = readFully(in);
+		File cacheFile = cacheDirectory != null ? new File(cacheDirectory, hash(definition) + CACHE_SUFFIX) : null;
+
+		if (cacheFile != null && cacheFile.isFile()) {
+			try {
+				InputStream cacheIn = new BufferedInputStream(new FileInputStream(cacheFile));
+				try {
+					RouteSet routeSet = new RouteSet();
+					routeSet.setRoutes(RouteManifestReader.readBinary(cacheIn));
+					return routeSet;
+				}
+				finally {
+					cacheIn.close();
+				}
+			}
+			catch (IOException e) {
+				// rebuild the entry below
+			}
+		}
+
+		RouteSetBuilder builder = new RouteSetBuilder();
+		boolean usesTemplateClasses = RouteDefinitionParser.parse(new InputStreamReader(new ByteArrayInputStream(definition), ENCODING), builder);
+		RouteSet routeSet = builder.createRouteSet();
+
+		if (cacheFile != null && !usesTemplateClasses) {
+			writeCacheFile(cacheFile, routeSet);
+		}
+		return routeSet;
+	}
+
+	/**
+	 * Writes the routes to a temporary file that is renamed to the cache file,
+	 * so that concurrent loaders never read a partial entry.
+	 */
+	private void writeCacheFile(File cacheFile, RouteSet routeSet) throws IOException {
+		cacheDirectory.mkdirs();
+		File temporaryFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+			try {
+				RouteManifestWriter.writeBinary(routeSet, out);
+			}
+			finally {
+				out.close();
+			}
+
+			if (!temporaryFile.renameTo(cacheFile) && !cacheFile.isFile()) {
+				throw new IOException("Failed to write " + cacheFile);
+			}
+		}
+		finally {
+			temporaryFile.delete();
+		}
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the SHA-1 hash of the cache version and the definition.
+	 */
+	private String hash(byte[] definition) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(cacheVersion.getBytes(ENCODING));
+			digest.update((byte) '\n');
+			return toHex(digest.digest(definition));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new Error(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			result.append(Character.forDigit((b >> 4) & 0xF, 16));
+			result.append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,112 @@
+package com.ryanberdeen.routes;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.ry1.springframework.web.servlet.handler.MutableRequestWrapper;
+import org.ry1.springframework.web.util.ExtendedParameters;
+import org.ry1.springframework.web.util.ExtendedParameters.Strategy;
+
+/** Matches each request against the mapping of the servlet context, or the
+ * route set of the request's tenant if one was set with
+ * {@link RouteUtils#setTenant(ServletRequest, String)} and the servlet
+ * context has a {@link RouteSetRegistry}.
+ *
+ * <p>The request is matched once; if a match is already stored in the
+ * request, for example when the request is forwarded, it is reused. The match
+ * and the mapping are stored in the request with {@link RouteUtils}, and the
+ * matched parameters are added to the request as extended parameters.</p>
+ *
+ * <p>If the request is not already wrapped in a {@link MutableRequestWrapper},
+ * it is wrapped unless the <code>wrapRequest</code> init parameter is
+ * <code>false</code>, in which case the parameters are stored in a request
+ * attribute. The time spent matching, in nanoseconds, is available from
+ * {@link #getMatchTime(ServletRequest)}.</p>
+ */
+public class RouteDispatchFilter implements Filter {
+	public static final String MATCH_TIME_ATTRIBUTE = RouteDispatchFilter.class.getName() + ".matchTime";
+
+	private ServletContext servletContext;
+	private boolean wrapRequest = true;
+
+	public void init(FilterConfig filterConfig) throws ServletException {
+		servletContext = filterConfig.getServletContext();
+		String wrapRequestParameter = filterConfig.getInitParameter("wrapRequest");
+		if (wrapRequestParameter != null) {
+			wrapRequest = Boolean.valueOf(wrapRequestParameter);
+		}
+	}
+
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+		if (RouteUtils.getMatch(httpRequest) == null) {
+			HttpServletRequestMapping mapping = RouteUtils.getMapping(httpRequest, servletContext);
+			if (mapping != null) {
+				long start = System.nanoTime();
+				RequestMatch match = mapping.getBestMatch(httpRequest, getPath(httpRequest));
+				httpRequest.setAttribute(MATCH_TIME_ATTRIBUTE, System.nanoTime() - start);
+
+				RouteUtils.setMapping(httpRequest, mapping);
+				if (match != null) {
+					RouteUtils.setMatch(httpRequest, match);
+					httpRequest = addParameters(httpRequest, match);
+				}
+			}
+		}
+
+		chain.doFilter(httpRequest, response);
+	}
+
+	/** Adds the matched parameters to the request.
+	 * @return the request to pass down the chain
+	 */
+	private HttpServletRequest addParameters(HttpServletRequest request, RequestMatch match) {
+		Strategy strategy = Strategy.WRAPPER;
+		if (MutableRequestWrapper.getParameterizableRequestWrapper(request) == null) {
+			if (wrapRequest) {
+				request = new MutableRequestWrapper(request);
+			}
+			else {
+				strategy = Strategy.ATTRIBUTE;
+			}
+		}
+
+		ExtendedParameters.addExtendedParameter(request, strategy, match.getParameters());
+		return request;
+	}
+
+	/** Returns the path of the request within the web application.
+	 */
+	protected String getPath(HttpServletRequest request) {
+		String servletPath = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		if (pathInfo == null) {
+			return servletPath;
+		}
+		else if (servletPath == null || servletPath.length() == 0) {
+			return pathInfo;
+		}
+		else {
+			return servletPath + pathInfo;
+		}
+	}
+
+	/** Returns the time spent matching the request, in nanoseconds, or
+	 * <code>-1</code> if the request was not matched by the filter.
+	 */
+	public static long getMatchTime(ServletRequest request) {
+		Long matchTime = (Long) request.getAttribute(MATCH_TIME_ATTRIBUTE);
+		return matchTime != null ? matchTime : -1;
+	}
+
+	public void destroy() {}
+}
@@ -0,0 +1,149 @@
+package com.ryanberdeen.routes;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.StaticSegment;
+
+/**
+ * The estimated memory used by the routes of a prepared route set, compared
+ * with the estimated memory the same routes would use if their parameters,
+ * names and methods were stored in hash maps, hash sets and lists.
+ *
+ * <p>Sizes assume a 64-bit VM with compressed references and 8-byte object
+ * alignment. Compiled regular expressions are not counted.</p>
+ */
+public class RouteFootprint {
+	static final int OBJECT = 16;
+	private static final int REFERENCE = 4;
+
+	private int routeCount;
+	private int symbolCount;
+	private long symbolBytes;
+	private long compactBytes;
+	private long mapBasedBytes;
+
+	/**
+	 * Estimates the footprint of prepared routes.
+	 */
+	static RouteFootprint estimate(List<Route> routes) {
+		RouteFootprint footprint = new RouteFootprint();
+		footprint.routeCount = routes.size();
+
+		IdentityHashMap<String, Boolean> symbols = new IdentityHashMap<String, Boolean>();
+		for (Route route : routes) {
+			footprint.compactBytes += route.getFootprint();
+			footprint.mapBasedBytes += route.getMapBasedFootprint();
+
+			addSymbol(symbols, route.getName());
+			addSymbols(symbols, route.getStaticParameterValues());
+			addSymbols(symbols, route.getDefaultStaticParameterValues());
+			for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+				if (segment instanceof StaticSegment) {
+					addSymbol(symbols, ((StaticSegment) segment).getValue());
+				}
+				else if (segment instanceof ParameterSegment) {
+					addSymbol(symbols, ((ParameterSegment) segment).getName());
+				}
+			}
+		}
+
+		footprint.symbolCount = symbols.size();
+		for (String symbol : symbols.keySet()) {
+			footprint.symbolBytes += string(symbol);
+		}
+		return footprint;
+	}
+
+	private static void addSymbols(IdentityHashMap<String, Boolean> symbols, Map<String, String> parameters) {
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			addSymbol(symbols, parameter.getKey());
+			addSymbol(symbols, parameter.getValue());
+		}
+	}
+
+	private static void addSymbol(IdentityHashMap<String, Boolean> symbols, String symbol) {
+		if (symbol != null) {
+			symbols.put(symbol, Boolean.TRUE);
+		}
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+
+	static long object(int referenceFields) {
+		return align(12 + REFERENCE * referenceFields);
+	}
+
+	static long array(int length) {
+		return length == 0 ? 0 : align(16 + REFERENCE * length);
+	}
+
+	static long string(String string) {
+		return object(3) + align(16 + 2 * string.length());
+	}
+
+	static long hashMap(int size) {
+		int capacity = 16;
+		while (capacity * 3 / 4 < size) {
+			capacity <<= 1;
+		}
+		// the map, its table and an entry per mapping
+		return 48 + array(capacity) + size * 32L;
+	}
+
+	static long hashSet(int size) {
+		return OBJECT + hashMap(size);
+	}
+
+	static long arrayList(int size) {
+		return 24 + array(Math.max(size, 10));
+	}
+
+	public int getRouteCount() {
+		return routeCount;
+	}
+
+	/**
+	 * Returns the number of distinct names and values used by the routes.
+	 */
+	public int getSymbolCount() {
+		return symbolCount;
+	}
+
+	/**
+	 * Returns the estimated size of the distinct names and values.
+	 */
+	public long getSymbolBytes() {
+		return symbolBytes;
+	}
+
+	/**
+	 * Returns the estimated size of the routes, not counting names and values.
+	 */
+	public long getCompactBytes() {
+		return compactBytes;
+	}
+
+	/**
+	 * Returns the estimated size of the routes if they were stored in hash
+	 * maps, hash sets and lists, not counting names and values.
+	 */
+	public long getMapBasedBytes() {
+		return mapBasedBytes;
+	}
+
+	public long getSavedBytes() {
+		return mapBasedBytes - compactBytes;
+	}
+
+	@Override
+	public String toString() {
+		return routeCount + " routes: " + compactBytes + " bytes (" + mapBasedBytes + " bytes with hash maps, "
+			+ getSavedBytes() + " saved), " + symbolCount + " symbols: " + symbolBytes + " bytes";
+	}
+}
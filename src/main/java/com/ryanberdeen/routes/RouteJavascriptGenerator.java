@@ -1,9 +1,17 @@
 package com.ryanberdeen.routes;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -13,29 +21,78 @@ import javax.servlet.http.HttpServletResponse;
  * response output stream.
  *
  * <p>The route JavaScript allows named routes to be used in JavaScript.</p>
+ *
+ * <p>The script is rendered once for each context path and cached until the
+ * mapping is set again or, for a {@link RouteSet}, until its
+ * {@link RouteSet#getVersion() version} changes. Responses carry a strong ETag, are gzipped
+ * when the client accepts it, and conditional requests are answered with
+ * <code>304 Not Modified</code>.</p>
  */
 public class RouteJavascriptGenerator {
+	private static final String ENCODING = "UTF-8";
+	private static final String CONTENT_TYPE = "text/javascript; charset=" + ENCODING;
+
 	private Mapping mapping;
 
+	private String header;
+
+	/** The rendered scripts, keyed by context path. */
+	private ConcurrentHashMap<String, RenderedScript> scripts = new ConcurrentHashMap<String, RenderedScript>();
+
 	/**
 	 * Sets the mapping for which JavaScript will be generated.
 	 */
 	public void setMapping(Mapping mapping) {
 		this.mapping = mapping;
+		scripts.clear();
 	}
 
 	/**
 	 * Generates and writes the route JavaScript.
 	 */
 	public void generate(HttpServletRequest request,  HttpServletResponse response) throws IOException {
-		InputStreamReader in = new InputStreamReader(this.getClass().getResourceAsStream("header.js"));
-		PrintWriter writer = response.getWriter();
-		char[] buffer = new char[1024];
-		int len;
-		while ((len = in.read(buffer)) != -1) {
-			writer.write(buffer, 0, len);
+		RenderedScript script = getScript(request.getContextPath());
+
+		boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+		String etag = gzip ? script.gzipEtag : script.etag;
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		if (matchesEtag(request.getHeader("If-None-Match"), script)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		byte[] content = gzip ? script.gzipContent : script.content;
+		response.setContentType(CONTENT_TYPE);
+		if (gzip) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+		response.setContentLength(content.length);
+		response.getOutputStream().write(content);
+	}
+
+	/**
+	 * Returns the script for the context path, rendering it if it hasn't been
+	 * rendered for the current version of the mapping.
+	 */
+	private RenderedScript getScript(String contextPath) throws IOException {
+		long version = mapping instanceof RouteSet ? ((RouteSet) mapping).getVersion() : 0;
+		RenderedScript script = scripts.get(contextPath);
+		if (script == null || script.version != version) {
+			script = new RenderedScript(version, render(contextPath));
+			scripts.put(contextPath, script);
 		}
 
+		return script;
+	}
+
+	private byte[] render(String contextPath) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(out, ENCODING);
+		writer.write(getHeader());
+
 		writer.write('{');
 		boolean first = true;
 		for (Map.Entry<String, Route> entry : mapping.getNamedRoutes().entrySet()) {
@@ -46,13 +103,151 @@ public class RouteJavascriptGenerator {
 				first = false;
 			}
 			writer.write('\'');
-			writer.write(entry.getKey());
+			writeEscaped(writer, entry.getKey());
 			writer.write("':'");
-			writer.write(request.getContextPath());
-			writer.write(entry.getValue().getPathPattern().getStringTemplate());
+			writeEscaped(writer, contextPath);
+			writeEscaped(writer, entry.getValue().getPathPattern().getStringTemplate());
 			writer.write('\'');
 
 		}
 		writer.write("};");
+		writer.close();
+
+		return out.toByteArray();
+	}
+
+	/** Writes the string, escaping it for a single quoted JavaScript string.
+	 */
+	private static void writeEscaped(Writer writer, String string) throws IOException {
+		for (int i = 0, len = string.length(); i < len; i++) {
+			char c = string.charAt(i);
+			if (c == '\'' || c == '\\') {
+				writer.write('\\');
+			}
+			writer.write(c);
+		}
+	}
+
+	private String getHeader() throws IOException {
+		if (header == null) {
+			InputStream in = getClass().getResourceAsStream("header.js");
+			try {
+				Reader reader = new InputStreamReader(in, ENCODING);
+				StringBuilder headerBuilder = new StringBuilder();
+				char[] buffer = new char[1024];
+				int len;
+				while ((len = reader.read(buffer)) != -1) {
+					headerBuilder.append(buffer, 0, len);
+				}
+				header = headerBuilder.toString();
+			}
+			finally {
+				in.close();
+			}
+		}
+
+		return header;
+	}
+
+	/** Tests if the value of an <code>Accept-Encoding</code> header allows
+	 * gzip: it must be listed, or matched by <code>*</code>, with a non-zero
+	 * quality.
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+
+		float gzipQuality = -1;
+		float anyQuality = -1;
+		for (String element : acceptEncoding.split(",")) {
+			String[] parts = element.split(";");
+			String coding = parts[0].trim().toLowerCase();
+			float quality = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].trim().toLowerCase();
+				if (parameter.startsWith("q=")) {
+					quality = parseQuality(parameter.substring(2).trim());
+				}
+			}
+
+			if (coding.equals("gzip") || coding.equals("x-gzip")) {
+				gzipQuality = quality;
+			}
+			else if (coding.equals("*")) {
+				anyQuality = quality;
+			}
+		}
+
+		return gzipQuality != -1 ? gzipQuality > 0 : anyQuality > 0;
+	}
+
+	/** Parses a quality value, treating an invalid value as <code>0</code>.
+	 */
+	private static float parseQuality(String value) {
+		try {
+			float quality = Float.parseFloat(value);
+			return quality >= 0 && quality <= 1 ? quality : 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/** Tests if the value of an <code>If-None-Match</code> header matches the script.
+	 */
+	private static boolean matchesEtag(String ifNoneMatch, RenderedScript script) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") || tag.equals(script.etag) || tag.equals(script.gzipEtag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/** A rendered script, in plain and gzipped form.
+	 */
+	private static class RenderedScript {
+		private final long version;
+		private final byte[] content;
+		private final byte[] gzipContent;
+		private final String etag;
+		private final String gzipEtag;
+
+		RenderedScript(long version, byte[] content) throws IOException {
+			this.version = version;
+			this.content = content;
+
+			ByteArrayOutputStream gzipOut = new ByteArrayOutputStream(content.length / 2);
+			GZIPOutputStream gzip = new GZIPOutputStream(gzipOut);
+			gzip.write(content);
+			gzip.close();
+			gzipContent = gzipOut.toByteArray();
+
+			String hash = hash(content);
+			etag = "\"" + hash + "\"";
+			gzipEtag = "\"" + hash + "-gzip\"";
+		}
+
+		private static String hash(byte[] content) {
+			try {
+				byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+				StringBuilder result = new StringBuilder(digest.length * 2);
+				for (byte b : digest) {
+					result.append(Character.forDigit((b >> 4) & 0xF, 16));
+					result.append(Character.forDigit(b & 0xF, 16));
+				}
+				return result.toString();
+			}
+			catch (NoSuchAlgorithmException ex) {
+				throw new Error(ex);
+			}
+		}
 	}
 }
@@ -0,0 +1,141 @@
+package com.ryanberdeen.routes;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.ParameterType;
+import com.ryanberdeen.routes.path.PathPattern;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.StaticSegment;
+
+/**
+ * Reads routes from a binary manifest written by
+ * {@link RouteManifestWriter#writeBinary(RouteSet, java.io.OutputStream)}. The routes
+ * are not prepared.
+ */
+public class RouteManifestReader {
+	private static final byte[] BINARY_MAGIC = {'R', 'T', 'M', 'F'};
+	private static final int BINARY_VERSION = 4;
+
+	private static final int STATIC_SEGMENT = 0;
+
+	private static final int REQUIRED_FLAG = 1;
+	private static final int ALLOW_SLASHES_FLAG = 2;
+
+	/**
+	 * Reads the routes of a binary manifest.
+	 * @throws IOException if the manifest can't be read or is not a supported version
+	 */
+	public static List<Route> readBinary(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		byte[] magic = new byte[BINARY_MAGIC.length];
+		data.readFully(magic);
+		for (int i = 0; i < magic.length; i++) {
+			if (magic[i] != BINARY_MAGIC[i]) {
+				throw new IOException("Not a route manifest");
+			}
+		}
+		int version = data.readUnsignedByte();
+		if (version != BINARY_VERSION) {
+			throw new IOException("Unsupported route manifest version " + version);
+		}
+
+		int routeCount = data.readInt();
+		ArrayList<Route> routes = new ArrayList<Route>(routeCount);
+		for (int i = 0; i < routeCount; i++) {
+			Route route = new Route();
+			route.setName(readBinaryString(data));
+			route.setMethods(readBinaryStrings(data));
+			route.setExcludedMethods(readBinaryStrings(data));
+			String hostPattern = readBinaryString(data);
+			route.setHostPattern(hostPattern != null ? HostPattern.parse(hostPattern) : null);
+			Set<String> formats = readBinaryStrings(data);
+
+			int segmentCount = data.readInt();
+			ArrayList<PathSegment> segments = new ArrayList<PathSegment>(segmentCount);
+			HashSet<String> parameterNames = new HashSet<String>();
+			for (int j = 0; j < segmentCount; j++) {
+				int type = data.readUnsignedByte();
+				int flags = data.readUnsignedByte();
+				boolean required = (flags & REQUIRED_FLAG) != 0;
+				if (type == STATIC_SEGMENT) {
+					segments.add(new StaticSegment(readBinaryString(data), required));
+				}
+				else {
+					boolean allowSlashes = (flags & ALLOW_SLASHES_FLAG) != 0;
+					String name = readBinaryString(data);
+					String regex = readBinaryString(data);
+					ParameterType parameterType = readBinaryType(data);
+					ParameterSegment segment = new ParameterSegment(required, allowSlashes, name);
+					// the manifest holds the effective regex; keep default regexes as defaults
+					if (regex.equals(segment.getRegex())) {
+						regex = null;
+					}
+					if (regex != null || parameterType != null) {
+						segment = new ParameterSegment(required, allowSlashes, name, regex, parameterType);
+					}
+					segments.add(segment);
+					parameterNames.add(name);
+				}
+			}
+			PathPattern pathPattern = new PathPattern(segments, parameterNames);
+			pathPattern.setFormats(formats);
+			route.setPathPattern(pathPattern);
+
+			route.setStaticParameters(readBinaryParameters(data));
+			route.setDefaultStaticParameters(readBinaryParameters(data));
+			routes.add(route);
+		}
+
+		return routes;
+	}
+
+	private static Set<String> readBinaryStrings(DataInputStream data) throws IOException {
+		int count = data.readInt();
+		if (count == 0) {
+			return null;
+		}
+		HashSet<String> strings = new HashSet<String>(count * 2);
+		for (int i = 0; i < count; i++) {
+			strings.add(readBinaryString(data));
+		}
+		return strings;
+	}
+
+	private static Map<String, String> readBinaryParameters(DataInputStream data) throws IOException {
+		int count = data.readInt();
+		HashMap<String, String> parameters = new HashMap<String, String>(count * 2);
+		for (int i = 0; i < count; i++) {
+			parameters.put(readBinaryString(data), readBinaryString(data));
+		}
+		return parameters;
+	}
+
+	private static ParameterType readBinaryType(DataInputStream data) throws IOException {
+		String name = readBinaryString(data);
+		try {
+			return name != null ? ParameterType.forName(name) : null;
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	private static String readBinaryString(DataInputStream data) throws IOException {
+		int length = data.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
@@ -0,0 +1,267 @@
+package com.ryanberdeen.routes;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.ParameterType;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.StaticSegment;
+
+/**
+ * Writes the routes of a route set as a manifest that clients can use to match
+ * and generate paths themselves. Routes are written in the order they are
+ * tested, directly to the output.
+ *
+ * <p>The JSON manifest is an object with a <code>routes</code> array. Each
+ * route has an optional <code>name</code>, optional <code>methods</code> and
+ * <code>excludedMethods</code> arrays, an optional <code>host</code> pattern,
+ * an optional <code>formats</code> array, a <code>segments</code> array, and
+ * <code>parameters</code> and <code>defaults</code> objects with the static
+ * and default static parameter values. A static segment is
+ * <code>{"static":value,"required":boolean}</code>; a parameter segment is
+ * <code>{"parameter":name,"required":boolean,"slashes":boolean,"regex":regex}</code>,
+ * with a <code>type</code> if the parameter has a {@link ParameterType}.</p>
+ *
+ * <p>The binary manifest contains the same information. It starts with the
+ * bytes <code>RTMF</code>, a format version byte and the route count. Each
+ * route is its name, methods, excluded methods, host pattern, formats,
+ * segments, static parameter values and default static parameter values.
+ * Integers are big-endian 32-bit values. Strings are a length in bytes
+ * followed by UTF-8; a length of <code>-1</code> is <code>null</code>. Method
+ * and format lists are a count and strings, with a count of <code>0</code>
+ * meaning no restriction or no formats. Segments are a count and, for each
+ * segment, a type byte (<code>0</code> static, <code>1</code> parameter) and
+ * a flags byte (<code>1</code> required, <code>2</code> allows slashes)
+ * followed by the static value, or by the parameter name, regex and type.
+ * Parameter values are a count and name/value string pairs.</p>
+ */
+public class RouteManifestWriter {
+	private static final byte[] BINARY_MAGIC = {'R', 'T', 'M', 'F'};
+	private static final int BINARY_VERSION = 4;
+
+	private static final int STATIC_SEGMENT = 0;
+	private static final int PARAMETER_SEGMENT = 1;
+
+	private static final int REQUIRED_FLAG = 1;
+	private static final int ALLOW_SLASHES_FLAG = 2;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Writes the manifest as compact JSON.
+	 */
+	public static void writeJson(RouteSet routeSet, Writer writer) throws IOException {
+		writer.write("{\"routes\":[");
+		boolean first = true;
+		for (Route route : routeSet.getRoutes()) {
+			if (!first) {
+				writer.write(',');
+			}
+			else {
+				first = false;
+			}
+			writeJson(route, writer);
+		}
+		writer.write("]}");
+		writer.flush();
+	}
+
+	private static void writeJson(Route route, Writer writer) throws IOException {
+		writer.write('{');
+		if (route.getName() != null) {
+			writer.write("\"name\":");
+			writeJsonString(route.getName(), writer);
+			writer.write(',');
+		}
+		if (route.getMethods() != null) {
+			writer.write("\"methods\":");
+			writeJsonArray(route.getMethods(), writer);
+			writer.write(',');
+		}
+		if (route.getExcludedMethods() != null) {
+			writer.write("\"excludedMethods\":");
+			writeJsonArray(route.getExcludedMethods(), writer);
+			writer.write(',');
+		}
+		if (route.getHostPattern() != null) {
+			writer.write("\"host\":");
+			writeJsonString(route.getHostPattern().toString(), writer);
+			writer.write(',');
+		}
+		if (route.getPathPattern().getFormats() != null) {
+			writer.write("\"formats\":");
+			writeJsonArray(route.getPathPattern().getFormats(), writer);
+			writer.write(',');
+		}
+
+		writer.write("\"segments\":[");
+		boolean first = true;
+		for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+			if (!first) {
+				writer.write(',');
+			}
+			else {
+				first = false;
+			}
+
+			if (segment instanceof StaticSegment) {
+				StaticSegment staticSegment = (StaticSegment) segment;
+				writer.write("{\"static\":");
+				writeJsonString(staticSegment.getValue(), writer);
+				writer.write(",\"required\":");
+				writer.write(String.valueOf(staticSegment.isRequired()));
+			}
+			else {
+				ParameterSegment parameterSegment = (ParameterSegment) segment;
+				writer.write("{\"parameter\":");
+				writeJsonString(parameterSegment.getName(), writer);
+				writer.write(",\"required\":");
+				writer.write(String.valueOf(parameterSegment.isRequired()));
+				writer.write(",\"slashes\":");
+				writer.write(String.valueOf(parameterSegment.isAllowSlashes()));
+				writer.write(",\"regex\":");
+				writeJsonString(parameterSegment.getRegex(), writer);
+				if (parameterSegment.getType() != null) {
+					writer.write(",\"type\":");
+					writeJsonString(parameterSegment.getType().toString(), writer);
+				}
+			}
+			writer.write('}');
+		}
+
+		writer.write("],\"parameters\":");
+		writeJsonObject(route.getStaticParameterValues(), writer);
+		writer.write(",\"defaults\":");
+		writeJsonObject(route.getDefaultStaticParameterValues(), writer);
+		writer.write('}');
+	}
+
+	private static void writeJsonArray(Set<String> values, Writer writer) throws IOException {
+		writer.write('[');
+		boolean first = true;
+		for (String value : values) {
+			if (!first) {
+				writer.write(',');
+			}
+			else {
+				first = false;
+			}
+			writeJsonString(value, writer);
+		}
+		writer.write(']');
+	}
+
+	private static void writeJsonObject(Map<String, String> values, Writer writer) throws IOException {
+		writer.write('{');
+		boolean first = true;
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			if (!first) {
+				writer.write(',');
+			}
+			else {
+				first = false;
+			}
+			writeJsonString(entry.getKey(), writer);
+			writer.write(':');
+			writeJsonString(entry.getValue(), writer);
+		}
+		writer.write('}');
+	}
+
+	private static void writeJsonString(String string, Writer writer) throws IOException {
+		writer.write('"');
+		for (int i = 0, len = string.length(); i < len; i++) {
+			char c = string.charAt(i);
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			}
+			else if (c < 0x20) {
+				writer.write("\\u00");
+				writer.write(HEX_DIGITS[c >> 4]);
+				writer.write(HEX_DIGITS[c & 0xF]);
+			}
+			else {
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+
+	/**
+	 * Writes the manifest in the binary format.
+	 */
+	public static void writeBinary(RouteSet routeSet, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.write(BINARY_MAGIC);
+		data.writeByte(BINARY_VERSION);
+		data.writeInt(routeSet.getRoutes().size());
+
+		for (Route route : routeSet.getRoutes()) {
+			writeBinaryString(route.getName(), data);
+			writeBinaryStrings(route.getMethods(), data);
+			writeBinaryStrings(route.getExcludedMethods(), data);
+			writeBinaryString(route.getHostPattern() != null ? route.getHostPattern().toString() : null, data);
+			writeBinaryStrings(route.getPathPattern().getFormats(), data);
+
+			data.writeInt(route.getPathPattern().getPathSegments().size());
+			for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+				if (segment instanceof StaticSegment) {
+					StaticSegment staticSegment = (StaticSegment) segment;
+					data.writeByte(STATIC_SEGMENT);
+					data.writeByte(staticSegment.isRequired() ? REQUIRED_FLAG : 0);
+					writeBinaryString(staticSegment.getValue(), data);
+				}
+				else {
+					ParameterSegment parameterSegment = (ParameterSegment) segment;
+					data.writeByte(PARAMETER_SEGMENT);
+					data.writeByte((parameterSegment.isRequired() ? REQUIRED_FLAG : 0) | (parameterSegment.isAllowSlashes() ? ALLOW_SLASHES_FLAG : 0));
+					writeBinaryString(parameterSegment.getName(), data);
+					writeBinaryString(parameterSegment.getRegex(), data);
+					writeBinaryString(parameterSegment.getType() != null ? parameterSegment.getType().toString() : null, data);
+				}
+			}
+
+			writeBinaryParameters(route.getStaticParameterValues(), data);
+			writeBinaryParameters(route.getDefaultStaticParameterValues(), data);
+		}
+
+		data.flush();
+	}
+
+	private static void writeBinaryStrings(Set<String> strings, DataOutputStream data) throws IOException {
+		if (strings == null) {
+			data.writeInt(0);
+		}
+		else {
+			data.writeInt(strings.size());
+			for (String string : strings) {
+				writeBinaryString(string, data);
+			}
+		}
+	}
+
+	private static void writeBinaryParameters(Map<String, String> parameters, DataOutputStream data) throws IOException {
+		data.writeInt(parameters.size());
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			writeBinaryString(parameter.getKey(), data);
+			writeBinaryString(parameter.getValue(), data);
+		}
+	}
+
+	private static void writeBinaryString(String string, DataOutputStream data) throws IOException {
+		if (string == null) {
+			data.writeInt(-1);
+		}
+		else {
+			byte[] bytes = string.getBytes("UTF-8");
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+}
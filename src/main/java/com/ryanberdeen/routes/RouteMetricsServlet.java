@@ -0,0 +1,34 @@
+package com.ryanberdeen.routes;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.ryanberdeen.routes.metrics.RouteMetrics;
+
+/**
+ * Writes the metrics of the servlet context's route set in the Prometheus
+ * text format. Responds with <code>404</code> if the mapping has no metrics.
+ */
+public class RouteMetricsServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		HttpServletRequestMapping mapping = RouteUtils.getMapping(getServletContext());
+		RouteMetrics metrics = mapping instanceof RouteSet ? ((RouteSet) mapping).getMetrics() : null;
+		if (metrics == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+		Writer writer = response.getWriter();
+		metrics.writeText(writer);
+		writer.flush();
+	}
+}
@@ -0,0 +1,131 @@
+package com.ryanberdeen.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.ryanberdeen.routes.path.PathPattern;
+
+/**
+ * Determines whether two routes can match the same request. The analysis is
+ * conservative: routes are only reported as disjoint if no host, method and
+ * path can match both.
+ */
+public class RouteOverlap {
+	/**
+	 * Tests if no request can match both routes.
+	 */
+	public static boolean isDisjoint(Route a, Route b) {
+		return areMethodsDisjoint(a, b) || areHostsDisjoint(a.getHostPattern(), b.getHostPattern()) || arePathsDisjoint(a.getPathPattern(), b.getPathPattern());
+	}
+
+	/**
+	 * Tests if no host is matched by both patterns. A <code>null</code>
+	 * pattern matches any host.
+	 */
+	public static boolean areHostsDisjoint(HostPattern a, HostPattern b) {
+		if (a == null || b == null) {
+			return false;
+		}
+
+		if (a.isExact() && b.isExact()) {
+			return !a.getDomain().equals(b.getDomain());
+		}
+		else if (a.isExact()) {
+			return b.match(a.getDomain()) == null;
+		}
+		else if (b.isExact()) {
+			return a.match(b.getDomain()) == null;
+		}
+		// wildcards overlap if one domain is under the other
+		return !a.getDomain().equals(b.getDomain()) && a.match(b.getDomain()) == null && b.match(a.getDomain()) == null;
+	}
+
+	/**
+	 * Tests if no method is allowed by both routes.
+	 */
+	public static boolean areMethodsDisjoint(Route a, Route b) {
+		return rejectsAll(b, a.getMethods()) || rejectsAll(a, b.getMethods());
+	}
+
+	private static boolean rejectsAll(Route route, Set<String> methods) {
+		if (methods == null) {
+			return false;
+		}
+
+		for (String method : methods) {
+			if (route.allowsMethod(method)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Tests if no path is matched by both patterns. A pattern that accepts
+	 * formats also matches its paths followed by a format suffix.
+	 */
+	public static boolean arePathsDisjoint(PathPattern a, PathPattern b) {
+		String prefixA = a.getLiteralPrefix();
+		String prefixB = b.getLiteralPrefix();
+		if (!prefixA.startsWith(prefixB) && !prefixB.startsWith(prefixA)) {
+			return true;
+		}
+
+		// a suffix can extend the literal prefix of a pattern that accepts formats
+		if ((a.getFormats() != null && prefixB.startsWith(prefixA)) || (b.getFormats() != null && prefixA.startsWith(prefixB))) {
+			return false;
+		}
+
+		List<String> staticPaths = getStaticPaths(a);
+		if (staticPaths != null) {
+			return !matchesAny(b, staticPaths);
+		}
+
+		staticPaths = getStaticPaths(b);
+		if (staticPaths != null) {
+			return !matchesAny(a, staticPaths);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns every path matched by the pattern, including those with a
+	 * format suffix, or <code>null</code> if the pattern has parameters.
+	 */
+	private static List<String> getStaticPaths(PathPattern pattern) {
+		List<String> staticPaths = pattern.getStaticPaths();
+		if (staticPaths == null || pattern.getFormats() == null) {
+			return staticPaths;
+		}
+
+		ArrayList<String> result = new ArrayList<String>(staticPaths);
+		for (String path : staticPaths) {
+			for (String format : pattern.getFormats()) {
+				result.add(path + '.' + format);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Tests if the pattern matches any of the paths, with or without a
+	 * format suffix it accepts.
+	 */
+	private static boolean matchesAny(PathPattern pattern, List<String> paths) {
+		for (String path : paths) {
+			if (pattern.getRegex().matcher(path).matches()) {
+				return true;
+			}
+
+			int formatIndex = PathPattern.getFormatIndex(path);
+			if (formatIndex != -1 && pattern.acceptsFormat(path.substring(formatIndex + 1)) && pattern.getRegex().matcher(path.substring(0, formatIndex)).matches()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
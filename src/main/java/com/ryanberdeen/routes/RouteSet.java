@@ -1,58 +1,242 @@
 package com.ryanberdeen.routes;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.ryanberdeen.routes.metrics.RouteMetrics;
+import com.ryanberdeen.routes.path.PathPattern;
+import com.ryanberdeen.routes.path.SymbolTable;
+
 public class RouteSet implements HttpServletRequestMapping {
+	/** The number of routes prepared by each task of a concurrent preparation. */
+	private static final int PREPARE_BATCH_SIZE = 64;
+
 	private List<Route> routes;
 
 	private HashMap<String, Route> namedRoutes;
 
 	private Set<String> contextParameterNames = Collections.singleton("controller");
 
+	private volatile long version;
+
+	private volatile RouteMetrics metrics;
+
+	/** The reference engine, which tests the routes in scan order. */
+	private final LinearMatchEngine linearMatchEngine = new LinearMatchEngine();
+
+	private MatchEngine matchEngine = linearMatchEngine;
+
+	/** Whether any route has a host pattern; if not, hosts are ignored. */
+	private volatile boolean hasHostPatterns;
+
+	/** The format suffixes accepted by any route, or <code>null</code> if none are. */
+	private volatile Set<String> formats;
+
+	private boolean adaptiveOrdering;
+	private AdaptiveRouteOrder adaptiveRouteOrder;
+
 	public void setRoutes(List<Route> routes) {
 		this.routes = new ArrayList<Route>(routes.size() + 1);
 		this.routes.addAll(routes);
+		resetScanOrder();
 	}
 
 	public void addRoute(Route route) {
 		routes.add(route);
+		resetScanOrder();
+	}
+
+	private void resetScanOrder() {
+		linearMatchEngine.prepare(routes);
+		hasHostPatterns = hasHostPatterns(routes);
+		formats = getFormats(routes);
+		adaptiveRouteOrder = null;
+		version++;
+	}
+
+	/**
+	 * Returns the version of the route set. The version changes whenever the
+	 * routes change, so it can be used to invalidate anything derived from
+	 * them.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the engine used to match requests. The default is a
+	 * {@link LinearMatchEngine}, which is also the only engine that uses
+	 * {@link #setAdaptiveOrdering(boolean) adaptive ordering}. Must be called
+	 * before {@link #prepare()}. Requests are matched by the engine whether or
+	 * not they have a host. A {@link CompiledMatchEngine} skips most routes
+	 * without testing their regular expressions.
+	 *
+	 * @param matchEngine the engine, or <code>null</code> for the default
+	 */
+	public void setMatchEngine(MatchEngine matchEngine) {
+		this.matchEngine = matchEngine != null ? matchEngine : linearMatchEngine;
+	}
+
+	public MatchEngine getMatchEngine() {
+		return matchEngine;
+	}
+
+	/**
+	 * Sets the metrics that record matches and path generation. Metrics are
+	 * disabled by default.
+	 */
+	public void setMetrics(RouteMetrics metrics) {
+		this.metrics = metrics;
+		if (metrics != null && namedRoutes != null) {
+			metrics.prepare(getRouteLabels());
+		}
+	}
+
+	public RouteMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns a label for each route: its name, or its index and path template
+	 * if it has no name.
+	 */
+	private String[] getRouteLabels() {
+		String[] labels = new String[routes.size()];
+		for (int i = 0; i < labels.length; i++) {
+			Route route = routes.get(i);
+			labels[i] = route.getName() != null ? route.getName() : i + " " + route.getPathPattern().getStringTemplate();
+		}
+		return labels;
+	}
+
+	/**
+	 * Enables reordering the routes by how often they match. When enabled,
+	 * {@link #prepare()} determines which routes can never match the same
+	 * request, and {@link #reorder()} moves frequently matched routes ahead of
+	 * disjoint, less frequently matched routes. The route that matches a
+	 * request is never changed. Requires {@link #setMetrics(RouteMetrics) metrics}.
+	 */
+	public void setAdaptiveOrdering(boolean adaptiveOrdering) {
+		this.adaptiveOrdering = adaptiveOrdering;
+	}
+
+	/**
+	 * Publishes a new order in which to test the routes, based on the matches
+	 * recorded since the last reordering. Does nothing unless adaptive ordering
+	 * is enabled and the route set is prepared.
+	 */
+	public void reorder() {
+		AdaptiveRouteOrder adaptiveRouteOrder = this.adaptiveRouteOrder;
+		RouteMetrics metrics = this.metrics;
+		if (adaptiveRouteOrder != null && metrics != null) {
+			long[] matchCounts = metrics.getRouteMatchCounts();
+			if (matchCounts.length == adaptiveRouteOrder.size()) {
+				linearMatchEngine.setScanOrder(adaptiveRouteOrder.reorder(matchCounts));
+			}
+		}
+	}
+
+	/**
+	 * Returns the routes in the order in which the default match engine tests
+	 * them.
+	 */
+	Route[] getScanOrder() {
+		return linearMatchEngine.getScanOrder();
 	}
 
+	/**
+	 * Schedules {@link #reorder()} to run periodically.
+	 */
+	public ScheduledFuture<?> scheduleReordering(ScheduledExecutorService executor, long period, TimeUnit unit) {
+		return executor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				reorder();
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Sets the names of the context parameters. Must be called before
+	 * {@link #prepare()}.
+	 */
 	public void setContextParameterNames(Set<String> contextParameterNames) {
 		this.contextParameterNames = contextParameterNames;
 	}
 
 	public RequestMatch getBestMatch(String method, String path) {
-		Map<String, String> parameters = null;
+		return getBestMatch(null, method, path);
+	}
 
-		for (Route route: routes) {
-			parameters = route.match(path, method);
-			if (parameters != null) {
-				HashMap<String, String> contextParameters = new HashMap<String, String>();
+	/**
+	 * Returns the match of the first route that matches the request. Routes
+	 * with host patterns only match if the host is provided.
+	 * @param host the host of the request, or <code>null</code>
+	 */
+	public RequestMatch getBestMatch(String host, String method, String path) {
+		RouteMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return findBestMatch(host, method, path);
+		}
 
-				for (Map.Entry<String, String> entry : parameters.entrySet()) {
-					if (contextParameterNames.contains(entry.getKey())) {
-						contextParameters.put(entry.getKey(), entry.getValue());
-					}
-				}
+		boolean sampled = metrics.sample();
+		long start = sampled ? System.nanoTime() : 0;
+		RequestMatch match = findBestMatch(host, method, path);
+		long nanos = sampled ? System.nanoTime() - start : -1;
 
-				RequestMatch match = new RequestMatch(route, parameters, contextParameters);
-				return match;
-			}
+		if (match != null) {
+			metrics.recordMatch(match.getRoute().getIndex(), nanos);
+		}
+		else {
+			metrics.recordMiss(nanos);
 		}
+		return match;
+	}
+
+	/**
+	 * Matches the request. If the path ends with a format suffix accepted by
+	 * any route, each route that accepts the format is matched against the
+	 * path without the suffix, then against the whole path; the format is
+	 * added to the parameters of a match without the suffix.
+	 */
+	private RequestMatch findBestMatch(String host, String method, String path) {
+		host = host != null && hasHostPatterns ? HostPattern.normalize(host) : null;
+		return matchEngine.match(host, method, path, getFormat(path));
+	}
 
+	/** Returns the suffix of the path if any route accepts it as a format,
+	 * or <code>null</code>.
+	 */
+	private String getFormat(String path) {
+		Set<String> formats = this.formats;
+		if (formats != null) {
+			int formatIndex = PathPattern.getFormatIndex(path);
+			if (formatIndex != -1) {
+				String suffix = path.substring(formatIndex + 1);
+				if (formats.contains(suffix)) {
+					return suffix;
+				}
+			}
+		}
 		return null;
 	}
 
 	public RequestMatch getBestMatch(HttpServletRequest request, String path) {
-		return getBestMatch(request.getMethod(), path);
+		return getBestMatch(request.getServerName(), request.getMethod(), path);
 	}
 
 	public Route getNamedRoute(String name) {
@@ -107,16 +291,201 @@ public class RouteSet implements HttpServletRequestMapping {
 		return buildPath(route, parameters, contextParameters);
 	}
 
-	private static String buildPath(Route route, Map<String, Object> parameters, Map<String, String> contextParameters) {
-		// FIXME query string
-		return route.buildPath(parameters, contextParameters);
+	/**
+	 * Generates a path for each value of a varying parameter. The route is
+	 * selected once, using the first value, so the varying parameter should
+	 * not be one that routes match against static values.
+	 *
+	 * @param parameters the parameters shared by every path
+	 * @param contextParameters the context parameters
+	 * @param variableName the name of the parameter that varies
+	 * @param values the values of the varying parameter
+	 * @param callback receives each generated path
+	 */
+	public void getPaths(Map<String, Object> parameters, Map<String, String> contextParameters, String variableName, Iterable<?> values, PathCallback callback) {
+		getPaths(null, parameters, contextParameters, variableName, values, callback);
+	}
+
+	/**
+	 * Generates a path with the named route for each value of a varying parameter.
+	 *
+	 * @see #getPaths(Map, Map, String, Iterable, PathCallback)
+	 */
+	public void getPaths(String name, Map<String, Object> parameters, Map<String, String> contextParameters, String variableName, Iterable<?> values, PathCallback callback) {
+		HashMap<String, Object> pathParameters = new HashMap<String, Object>(parameters);
+		StringBuilder pathBuilder = new StringBuilder();
+		Route route = null;
+
+		for (Object value : values) {
+			pathParameters.put(variableName, value);
+			if (route == null) {
+				route = getRoute(name, pathParameters, contextParameters);
+			}
+
+			pathBuilder.setLength(0);
+			route.buildPath(pathBuilder, pathParameters, contextParameters);
+			recordGeneration(route);
+			callback.handlePath(value, pathBuilder.toString());
+		}
+	}
+
+	/**
+	 * Generates a path for each value of a varying parameter, appending the
+	 * paths to <code>out</code>.
+	 *
+	 * @param separator appended between paths
+	 * @see #getPaths(Map, Map, String, Iterable, PathCallback)
+	 */
+	public void appendPaths(Appendable out, String separator, Map<String, Object> parameters, Map<String, String> contextParameters, String variableName, Iterable<?> values) throws IOException {
+		appendPaths(out, separator, null, parameters, contextParameters, variableName, values);
+	}
+
+	/**
+	 * Generates a path with the named route for each value of a varying
+	 * parameter, appending the paths to <code>out</code>.
+	 *
+	 * @param separator appended between paths
+	 * @see #getPaths(Map, Map, String, Iterable, PathCallback)
+	 */
+	public void appendPaths(Appendable out, String separator, String name, Map<String, Object> parameters, Map<String, String> contextParameters, String variableName, Iterable<?> values) throws IOException {
+		HashMap<String, Object> pathParameters = new HashMap<String, Object>(parameters);
+		StringBuilder pathBuilder = new StringBuilder();
+		Route route = null;
+
+		for (Object value : values) {
+			pathParameters.put(variableName, value);
+			if (route == null) {
+				route = getRoute(name, pathParameters, contextParameters);
+			}
+			else {
+				out.append(separator);
+			}
+
+			pathBuilder.setLength(0);
+			route.buildPath(pathBuilder, pathParameters, contextParameters);
+			recordGeneration(route);
+			out.append(pathBuilder);
+		}
+	}
+
+	/**
+	 * Returns the named route, or the route that best matches the parameters if
+	 * <code>name</code> is <code>null</code>.
+	 */
+	private Route getRoute(String name, Map<String, Object> parameters, Map<String, String> contextParameters) {
+		if (name != null) {
+			Route route = getNamedRoute(name);
+			if (route == null) {
+				throw new PathGenerationException("No route matches name " + name);
+			}
+			return route;
+		}
+		else {
+			Route route = getBestMatch(parameters, contextParameters);
+			if (route == null) {
+				throw new PathGenerationException("No route matches parameters " + parameters + ", contextParameters " + contextParameters);
+			}
+			return route;
+		}
+	}
+
+	private String buildPath(Route route, Map<String, Object> parameters, Map<String, String> contextParameters) {
+		String path = route.buildPath(parameters, contextParameters);
+		recordGeneration(route);
+		return path;
+	}
+
+	private void recordGeneration(Route route) {
+		RouteMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.recordGeneration(route.getIndex());
+		}
+	}
+
+	/**
+	 * Exercises matching and path generation so that they are compiled before
+	 * the route set handles requests. Each pass matches a path synthesized
+	 * from every route, along with near misses, and generates a path from
+	 * parameters synthesized from every route, with a host synthesized from its
+	 * host pattern. Requests are matched by the reference engine and by the
+	 * engine that dispatches requests, bypassing any
+	 * {@link ShadowMatchEngine} so that warmup requests are not verified.
+	 * Metrics and adaptive ordering are not affected. Must be called after
+	 * {@link #prepare()}.
+	 *
+	 * @param iterations the maximum number of passes over the routes
+	 * @param time the maximum time to spend, or <code>0</code> for no limit
+	 * @param callback notified after each pass, or <code>null</code>
+	 * @return the number of completed passes
+	 */
+	public int warmup(int iterations, long time, TimeUnit unit, WarmupCallback callback) {
+		long start = System.nanoTime();
+		long limit = unit.toNanos(time);
+		List<WarmupSample> samples = WarmupSample.createSamples(routes);
+
+		MatchEngine dispatchEngine = matchEngine;
+		while (dispatchEngine instanceof ShadowMatchEngine) {
+			dispatchEngine = ((ShadowMatchEngine) dispatchEngine).getEngine();
+		}
+		MatchEngine[] engines = dispatchEngine != linearMatchEngine ? new MatchEngine[] {linearMatchEngine, dispatchEngine} : new MatchEngine[] {linearMatchEngine};
+
+		int iteration = 0;
+		while (iteration < iterations) {
+			for (WarmupSample sample : samples) {
+				for (MatchEngine engine : engines) {
+					if (sample.getPath() != null) {
+						engine.match(sample.getHost(), sample.getMethod(), sample.getPath(), getFormat(sample.getPath()));
+					}
+					for (String nearMissPath : sample.getNearMissPaths()) {
+						engine.match(sample.getHost(), sample.getMethod(), nearMissPath, getFormat(nearMissPath));
+					}
+				}
+
+				Map<String, Object> parameters = sample.getParameters();
+				if (parameters != null) {
+					Route route = getBestMatch(parameters, Route.NO_PARAMETER_VALUES);
+					try {
+						if (route != null) {
+							route.buildPath(parameters, Route.NO_PARAMETER_VALUES);
+						}
+					}
+					catch (RuntimeException e) {
+						// an earlier route took the parameters but needs context parameters
+					}
+				}
+
+				if (limit > 0 && System.nanoTime() - start >= limit) {
+					return iteration;
+				}
+			}
+
+			iteration++;
+			if (callback != null) {
+				callback.handleProgress(iteration, System.nanoTime() - start);
+			}
+		}
+
+		return iteration;
 	}
 
 	public Map<String, Route> getNamedRoutes() {
 		return Collections.unmodifiableMap(namedRoutes);
 	}
 
+	public List<Route> getRoutes() {
+		return Collections.unmodifiableList(routes);
+	}
+
 	public void prepare() throws Exception {
+		prepare(null);
+	}
+
+	/** Prepares the route set, preparing the routes concurrently in batches
+	 * on the executor. Tasks never wait for each other, so any executor can be
+	 * used. If the executor is <code>null</code>, the routes are prepared on
+	 * the calling thread.
+	 */
+	public void prepare(ExecutorService executor) throws Exception {
 		// process route names
 		namedRoutes = new HashMap<String, Route>();
 		for (Route route : routes) {
@@ -126,9 +495,97 @@ public class RouteSet implements HttpServletRequestMapping {
 			}
 		}
 
+		// routes share instances of equal names and values
+		SymbolTable symbols = new SymbolTable();
+		for (int i = 0; i < routes.size(); i++) {
+			routes.get(i).setIndex(i);
+		}
+		if (executor == null || routes.size() <= PREPARE_BATCH_SIZE) {
+			prepareRoutes(routes, symbols);
+		}
+		else {
+			prepareRoutes(executor, symbols);
+		}
+
+		if (metrics != null) {
+			metrics.prepare(getRouteLabels());
+		}
+
+		linearMatchEngine.prepare(routes);
+		hasHostPatterns = hasHostPatterns(routes);
+		formats = getFormats(routes);
+		if (matchEngine != linearMatchEngine) {
+			matchEngine.prepare(routes);
+		}
+		adaptiveRouteOrder = adaptiveOrdering ? new AdaptiveRouteOrder(routes) : null;
+
+		version++;
+	}
+
+	private void prepareRoutes(List<Route> routes, SymbolTable symbols) {
+		for (Route route : routes) {
+			route.prepare(contextParameterNames, symbols);
+		}
+	}
+
+	private void prepareRoutes(ExecutorService executor, final SymbolTable symbols) throws Exception {
+		ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+		try {
+			for (int start = 0; start < routes.size(); start += PREPARE_BATCH_SIZE) {
+				final List<Route> batch = routes.subList(start, Math.min(start + PREPARE_BATCH_SIZE, routes.size()));
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						prepareRoutes(batch, symbols);
+						return null;
+					}
+				}));
+			}
+
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+		finally {
+			for (Future<Void> result : results) {
+				result.cancel(true);
+			}
+		}
+	}
+
+	private static boolean hasHostPatterns(List<Route> routes) {
 		for (Route route : routes) {
-			route.prepare();
+			if (route.getHostPattern() != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Set<String> getFormats(List<Route> routes) {
+		HashSet<String> formats = new HashSet<String>();
+		for (Route route : routes) {
+			Set<String> routeFormats = route.getPathPattern().getFormats();
+			if (routeFormats != null) {
+				formats.addAll(routeFormats);
+			}
 		}
+		return formats.isEmpty() ? null : formats;
+	}
+
+	/** Estimates the memory used by the routes. Must be called after {@link #prepare()}.
+	 */
+	public RouteFootprint getFootprint() {
+		return RouteFootprint.estimate(routes);
 	}
 
 	@Override
@@ -0,0 +1,13 @@
+package com.ryanberdeen.routes;
+
+/**
+ * Creates the route set of a tenant for a {@link RouteSetRegistry}.
+ */
+public interface RouteSetLoader {
+	/**
+	 * Creates the route set of the tenant. The route set is prepared by the
+	 * registry.
+	 * @param tenant the tenant to create the route set for
+	 */
+	public RouteSet load(String tenant) throws Exception;
+}
@@ -0,0 +1,256 @@
+package com.ryanberdeen.routes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the route sets of many tenants, loading each on first use and
+ * evicting the least recently used when their estimated size exceeds a
+ * memory budget.
+ *
+ * <p>Concurrent first requests for a tenant wait for a single load. A route
+ * set whose load failed is not retained; the next request loads it again.
+ * An evicted route set remains usable by requests that already hold it, and
+ * is loaded again on the next request for its tenant. Recency is tracked to
+ * about a millisecond; route sets last used within the same millisecond may
+ * be evicted in either order.</p>
+ *
+ * <p>Sizes are estimated from the {@link RouteFootprint} of each route set
+ * and the length of its regular expressions.</p>
+ */
+public class RouteSetRegistry {
+	/** Estimated size of a compiled regular expression per character of its pattern. */
+	private static final int REGEX_BYTES_PER_CHAR = 48;
+
+	/** The shift from {@link System#nanoTime()} to access times, which are
+	 * counted in units of about a millisecond. */
+	private static final int ACCESS_TIME_SHIFT = 20;
+
+	private final RouteSetLoader loader;
+	private volatile long memoryBudget;
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private final AtomicLong retainedSize = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param loader creates the route set of each tenant
+	 * @param memoryBudget the estimated size, in bytes, of the route sets to retain
+	 */
+	public RouteSetRegistry(RouteSetLoader loader, long memoryBudget) {
+		this.loader = loader;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the prepared route set of the tenant, loading it if necessary.
+	 * @throws IllegalStateException if the route set could not be loaded
+	 */
+	public RouteSet getRouteSet(String tenant) {
+		Entry entry = entries.get(tenant);
+		if (entry == null) {
+			Entry newEntry = new Entry(tenant);
+			entry = entries.putIfAbsent(tenant, newEntry);
+			if (entry == null) {
+				entry = newEntry;
+				entry.task.run();
+			}
+		}
+
+		// only write the access time when it changes, so requests for the same
+		// tenant don't all write to the entry
+		long now = System.nanoTime() >> ACCESS_TIME_SHIFT;
+		if (entry.lastAccess != now) {
+			entry.lastAccess = now;
+		}
+		try {
+			return entry.task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while loading routes for " + tenant, e);
+		}
+		catch (ExecutionException e) {
+			// the loading thread already removed the entry
+			throw new IllegalStateException("Failed to load routes for " + tenant, e.getCause());
+		}
+	}
+
+	/**
+	 * Discards the route set of the tenant, so that it is loaded again on the
+	 * next request.
+	 */
+	public void invalidate(String tenant) {
+		Entry entry = entries.get(tenant);
+		if (entry != null) {
+			remove(entry);
+		}
+	}
+
+	private RouteSet load(Entry entry) throws Exception {
+		RouteSet routeSet;
+		boolean loaded = false;
+		try {
+			routeSet = loader.load(entry.tenant);
+			routeSet.prepare();
+			loaded = true;
+		}
+		finally {
+			if (!loaded) {
+				entries.remove(entry.tenant, entry);
+			}
+		}
+
+		entry.size = estimateSize(routeSet);
+		loadCount.incrementAndGet();
+		boolean retained;
+		synchronized (entry) {
+			// the entry may have been invalidated while loading
+			retained = entry.retained = entries.get(entry.tenant) == entry;
+			if (retained) {
+				retainedSize.addAndGet(entry.size);
+			}
+		}
+		if (retained) {
+			evict(entry);
+		}
+		return routeSet;
+	}
+
+	/**
+	 * Evicts the least recently used route sets until the retained size is
+	 * within the budget. The route set just loaded is never evicted.
+	 */
+	private synchronized void evict(Entry loaded) {
+		if (retainedSize.get() <= memoryBudget) {
+			return;
+		}
+
+		// copy the access times, which other threads keep updating, so the order is consistent
+		ArrayList<Candidate> candidates = new ArrayList<Candidate>();
+		for (Entry entry : entries.values()) {
+			if (entry != loaded && entry.retained) {
+				candidates.add(new Candidate(entry));
+			}
+		}
+		Collections.sort(candidates);
+
+		for (int i = 0; i < candidates.size() && retainedSize.get() > memoryBudget; i++) {
+			if (remove(candidates.get(i).entry)) {
+				evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	private boolean remove(Entry entry) {
+		if (!entries.remove(entry.tenant, entry)) {
+			return false;
+		}
+		synchronized (entry) {
+			if (entry.retained) {
+				entry.retained = false;
+				retainedSize.addAndGet(-entry.size);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Estimates the memory retained by a prepared route set, in bytes.
+	 */
+	static long estimateSize(RouteSet routeSet) {
+		RouteFootprint footprint = routeSet.getFootprint();
+		long size = footprint.getCompactBytes() + footprint.getSymbolBytes();
+		for (Route route : routeSet.getRoutes()) {
+			size += REGEX_BYTES_PER_CHAR * route.getPathPattern().getRegex().pattern().length();
+		}
+		return size;
+	}
+
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Sets the estimated size, in bytes, of the route sets to retain. A smaller
+	 * budget takes effect when the next route set is loaded.
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the estimated size, in bytes, of the retained route sets.
+	 */
+	public long getRetainedSize() {
+		return retainedSize.get();
+	}
+
+	/**
+	 * Returns the number of route sets loaded or being loaded.
+	 */
+	public int getLoadedCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of route sets that have been loaded successfully.
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	/**
+	 * Returns the number of route sets evicted to stay within the budget.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/** An entry and its access time when eviction started, ordered least
+	 * recently used first.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		private final Entry entry;
+		private final long lastAccess;
+
+		Candidate(Entry entry) {
+			this.entry = entry;
+			lastAccess = entry.lastAccess;
+		}
+
+		public int compareTo(Candidate that) {
+			// access times are nanoTime based, so compare their difference
+			long difference = lastAccess - that.lastAccess;
+			return difference < 0 ? -1 : (difference == 0 ? 0 : 1);
+		}
+	}
+
+	private class Entry implements Callable<RouteSet> {
+		private final String tenant;
+		private final FutureTask<RouteSet> task = new FutureTask<RouteSet>(this);
+
+		/** The time of the last access, in units of {@link #ACCESS_TIME_SHIFT shifted} nanoseconds. */
+		private volatile long lastAccess;
+		private long size;
+
+		/** Whether the size of the entry is counted in the retained size. */
+		private volatile boolean retained;
+
+		Entry(String tenant) {
+			this.tenant = tenant;
+		}
+
+		public RouteSet call() throws Exception {
+			return load(this);
+		}
+	}
+}
@@ -6,6 +6,8 @@ import javax.servlet.ServletRequest;
 public class RouteUtils {
 	public static final String MAPPING_ATTRIBUTE = HttpServletRequestMapping.class.getName();
 	public static final String MATCH_ATTRIBUTE = RequestMatch.class.getName();
+	public static final String REGISTRY_ATTRIBUTE = RouteSetRegistry.class.getName();
+	public static final String TENANT_ATTRIBUTE = RouteSetRegistry.class.getName() + ".tenant";
 
 	public static HttpServletRequestMapping getMapping(ServletContext servletContext) {
 		return (HttpServletRequestMapping) servletContext.getAttribute(MAPPING_ATTRIBUTE);
@@ -15,6 +17,39 @@ public class RouteUtils {
 		servletContext.setAttribute(MAPPING_ATTRIBUTE, mapping);
 	}
 
+	public static RouteSetRegistry getRegistry(ServletContext servletContext) {
+		return (RouteSetRegistry) servletContext.getAttribute(REGISTRY_ATTRIBUTE);
+	}
+
+	public static void setRegistry(ServletContext servletContext, RouteSetRegistry registry) {
+		servletContext.setAttribute(REGISTRY_ATTRIBUTE, registry);
+	}
+
+	/**
+	 * Returns the mapping used for the request. If none was set for the
+	 * request, the route set of the request's tenant is used if the servlet
+	 * context has a registry, falling back to the mapping of the servlet
+	 * context.
+	 */
+	public static HttpServletRequestMapping getMapping(ServletRequest request, ServletContext servletContext) {
+		HttpServletRequestMapping mapping = (HttpServletRequestMapping) request.getAttribute(MAPPING_ATTRIBUTE);
+		if (mapping == null) {
+			String tenant = getTenant(request);
+			RouteSetRegistry registry = tenant != null ? getRegistry(servletContext) : null;
+			if (registry != null) {
+				mapping = registry.getRouteSet(tenant);
+			}
+			else {
+				mapping = getMapping(servletContext);
+			}
+		}
+		return mapping;
+	}
+
+	public static void setMapping(ServletRequest request, HttpServletRequestMapping mapping) {
+		request.setAttribute(MAPPING_ATTRIBUTE, mapping);
+	}
+
 	public static RequestMatch getMatch(ServletRequest request) {
 		return (RequestMatch) request.getAttribute(MATCH_ATTRIBUTE);
 	}
@@ -22,4 +57,16 @@ public class RouteUtils {
 	public static void setMatch(ServletRequest request, RequestMatch match) {
 		request.setAttribute(MATCH_ATTRIBUTE, match);
 	}
+
+	public static String getTenant(ServletRequest request) {
+		return (String) request.getAttribute(TENANT_ATTRIBUTE);
+	}
+
+	/**
+	 * Sets the tenant whose route set is used for the request. Must be called
+	 * before the request is matched.
+	 */
+	public static void setTenant(ServletRequest request, String tenant) {
+		request.setAttribute(TENANT_ATTRIBUTE, tenant);
+	}
 }
@@ -0,0 +1,139 @@
+package com.ryanberdeen.routes;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ryanberdeen.routes.metrics.StripedCounter;
+
+/**
+ * Matches with an engine being rolled out, verifying a sample of its matches
+ * against the reference engine. Requests are always dispatched using the
+ * engine's match. A verified match diverges if the reference engine matches a
+ * different route or extracts different parameters; divergences are counted
+ * and logged.
+ */
+public class ShadowMatchEngine implements MatchEngine {
+	private static final Logger LOGGER = Logger.getLogger(ShadowMatchEngine.class.getName());
+
+	/** Space between sample ticks, in ints, so that stripes don't share cache lines. */
+	private static final int SAMPLE_TICK_PADDING = 16;
+
+	private final MatchEngine engine;
+	private final LinearMatchEngine referenceEngine = new LinearMatchEngine();
+
+	private volatile int verificationInterval;
+
+	/** Per-thread-stripe sample ticks. Updates are racy, which only affects
+	 * which matches are verified. */
+	private final int[] sampleTicks = new int[StripedCounter.STRIPES * SAMPLE_TICK_PADDING];
+
+	private final StripedCounter verificationCount = new StripedCounter();
+	private final StripedCounter divergenceCount = new StripedCounter();
+
+	/**
+	 * @param engine the engine used to dispatch requests
+	 * @param verificationInterval verify one in this many matches on each
+	 * thread; <code>0</code> disables verification
+	 */
+	public ShadowMatchEngine(MatchEngine engine, int verificationInterval) {
+		this.engine = engine;
+		setVerificationInterval(verificationInterval);
+	}
+
+	public void prepare(List<Route> routes) {
+		referenceEngine.prepare(routes);
+		engine.prepare(routes);
+	}
+
+	public RequestMatch match(String host, String method, String path, String format) {
+		RequestMatch match = engine.match(host, method, path, format);
+		if (sample()) {
+			verify(host, method, path, format, match);
+		}
+		return match;
+	}
+
+	private boolean sample() {
+		int interval = verificationInterval;
+		if (interval <= 1) {
+			return interval == 1;
+		}
+		int tick = StripedCounter.stripe() * SAMPLE_TICK_PADDING;
+		int value = sampleTicks[tick] + 1;
+		if (value >= interval) {
+			value = 0;
+		}
+		sampleTicks[tick] = value;
+		return value == 0;
+	}
+
+	private void verify(String host, String method, String path, String format, RequestMatch match) {
+		verificationCount.increment();
+		RequestMatch expected;
+		try {
+			expected = referenceEngine.match(host, method, path, format);
+		}
+		catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Reference match failed for " + describe(host, method, path, format), e);
+			return;
+		}
+
+		if (!isSameMatch(expected, match)) {
+			divergenceCount.increment();
+			if (LOGGER.isLoggable(Level.WARNING)) {
+				LOGGER.warning("Match engine diverged for " + describe(host, method, path, format) + ": expected " + describe(expected) + ", got " + describe(match));
+			}
+		}
+	}
+
+	private static boolean isSameMatch(RequestMatch expected, RequestMatch match) {
+		if (expected == null || match == null) {
+			return expected == match;
+		}
+		return expected.getRoute() == match.getRoute() && expected.getParameters().equals(match.getParameters());
+	}
+
+	private static String describe(String host, String method, String path, String format) {
+		String request = host != null ? method + " " + host + path : method + " " + path;
+		return format != null ? request + '.' + format : request;
+	}
+
+	private static String describe(RequestMatch match) {
+		if (match == null) {
+			return "no match";
+		}
+		Route route = match.getRoute();
+		String label = route.getName() != null ? route.getName() : route.getIndex() + " " + route.getPathPattern().getStringTemplate();
+		return label + " " + match.getParameters();
+	}
+
+	public MatchEngine getEngine() {
+		return engine;
+	}
+
+	public int getVerificationInterval() {
+		return verificationInterval;
+	}
+
+	public void setVerificationInterval(int verificationInterval) {
+		if (verificationInterval < 0) {
+			throw new IllegalArgumentException("Invalid verification interval " + verificationInterval);
+		}
+		this.verificationInterval = verificationInterval;
+	}
+
+	/**
+	 * Returns the number of matches verified against the reference engine.
+	 */
+	public long getVerificationCount() {
+		return verificationCount.sum();
+	}
+
+	/**
+	 * Returns the number of verified matches that differed from the reference engine.
+	 */
+	public long getDivergenceCount() {
+		return divergenceCount.sum();
+	}
+}
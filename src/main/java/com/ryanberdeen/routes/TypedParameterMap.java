@@ -0,0 +1,21 @@
+package com.ryanberdeen.routes;
+
+import java.util.HashMap;
+
+/**
+ * The parameters matched by a route with typed parameters, along with the
+ * parsed values of the typed parameters.
+ */
+class TypedParameterMap extends HashMap<String, String> {
+	private static final long serialVersionUID = 1L;
+
+	private final long[] typedValues;
+
+	TypedParameterMap(long[] typedValues) {
+		this.typedValues = typedValues;
+	}
+
+	long[] getTypedValues() {
+		return typedValues;
+	}
+}
@@ -0,0 +1,13 @@
+package com.ryanberdeen.routes;
+
+/**
+ * Receives the progress of {@link RouteSet#warmup(int, long, java.util.concurrent.TimeUnit, WarmupCallback)}.
+ */
+public interface WarmupCallback {
+	/**
+	 * Called after each pass over the routes.
+	 * @param iteration the number of completed passes
+	 * @param elapsedNanos the time spent warming up so far
+	 */
+	public void handleProgress(int iteration, long elapsedNanos);
+}
@@ -0,0 +1,150 @@
+package com.ryanberdeen.routes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.PathSegment;
+
+/**
+ * Requests and parameters synthesized from a route to exercise matching and
+ * path generation.
+ */
+class WarmupSample {
+	/** Values tried, in order, for parameters without a static value that matches their regex. */
+	private static final String[] SAMPLE_VALUES = {"1", "sample", "sample-1", "sample_1", "Sample", "a", "0", "2010-01-01", "1.0", "sample/1"};
+
+	private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+
+	/** The default subdomain of hosts synthesized for wildcard and parameter host patterns. */
+	private static final String SAMPLE_SUBDOMAIN = "www";
+
+	private String method;
+
+	/** A host matched by the route's host pattern, or <code>null</code> if it has none. */
+	private String host;
+
+	/** A path matched by the route, or <code>null</code> if none could be synthesized. */
+	private String path;
+
+	/** Paths that are similar to the matched path but not matched by the route. */
+	private String[] nearMissPaths;
+
+	/** Parameters the route generates a path from, or <code>null</code>. */
+	private Map<String, Object> parameters;
+
+	private WarmupSample() {}
+
+	/**
+	 * Creates a sample for each prepared route.
+	 */
+	static List<WarmupSample> createSamples(List<Route> routes) {
+		ArrayList<WarmupSample> samples = new ArrayList<WarmupSample>(routes.size());
+		for (Route route : routes) {
+			samples.add(createSample(route));
+		}
+		return samples;
+	}
+
+	private static WarmupSample createSample(Route route) {
+		WarmupSample sample = new WarmupSample();
+		sample.method = "GET";
+		for (String method : METHODS) {
+			if (route.allowsMethod(method)) {
+				sample.method = method;
+				break;
+			}
+		}
+
+		// fill each parameter slot with a value its regex accepts
+		HashMap<String, Object> parameters = new HashMap<String, Object>(route.getStaticParameterValues());
+		sample.host = getSampleHost(route.getHostPattern(), parameters);
+		for (PathSegment segment : route.getPathPattern().getPathSegments()) {
+			if (segment instanceof ParameterSegment) {
+				ParameterSegment parameterSegment = (ParameterSegment) segment;
+				String value = getSampleValue(parameterSegment, parameters.get(parameterSegment.getName()));
+				if (value == null) {
+					sample.nearMissPaths = new String[0];
+					return sample;
+				}
+				parameters.put(parameterSegment.getName(), value);
+			}
+		}
+
+		String path;
+		try {
+			path = route.buildPath(parameters, Route.NO_PARAMETER_VALUES);
+		}
+		catch (RuntimeException e) {
+			// the route needs context parameters to generate paths
+			sample.nearMissPaths = new String[0];
+			return sample;
+		}
+
+		sample.parameters = parameters;
+		if (route.match(sample.host, path, sample.method) != null) {
+			sample.path = path;
+		}
+		sample.nearMissPaths = new String[] {path + "~", path + "/~/~", path.substring(0, path.length() / 2)};
+		return sample;
+	}
+
+	private static String getSampleHost(HostPattern hostPattern, Map<String, Object> parameters) {
+		if (hostPattern == null) {
+			return null;
+		}
+		else if (hostPattern.isExact()) {
+			return hostPattern.getDomain();
+		}
+
+		Object subdomain = hostPattern.getParameterName() != null ? parameters.get(hostPattern.getParameterName()) : null;
+		if (subdomain == null || subdomain.toString().length() == 0) {
+			subdomain = SAMPLE_SUBDOMAIN;
+		}
+		return HostPattern.normalize(subdomain + "." + hostPattern.getDomain());
+	}
+
+	private static String getSampleValue(ParameterSegment segment, Object staticValue) {
+		Pattern regex = Pattern.compile(segment.getRegex());
+		if (staticValue != null && accepts(segment, regex, staticValue.toString())) {
+			return staticValue.toString();
+		}
+
+		if (segment.getType() != null && accepts(segment, regex, segment.getType().getSampleValue())) {
+			return segment.getType().getSampleValue();
+		}
+		for (String value : SAMPLE_VALUES) {
+			if ((segment.isAllowSlashes() || value.indexOf('/') < 0) && accepts(segment, regex, value)) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	private static boolean accepts(ParameterSegment segment, Pattern regex, String value) {
+		return regex.matcher(value).matches() && (segment.getType() == null || segment.getType().accepts(value));
+	}
+
+	String getMethod() {
+		return method;
+	}
+
+	String getHost() {
+		return host;
+	}
+
+	String getPath() {
+		return path;
+	}
+
+	String[] getNearMissPaths() {
+		return nearMissPaths;
+	}
+
+	Map<String, Object> getParameters() {
+		return parameters;
+	}
+}
@@ -0,0 +1,219 @@
+package com.ryanberdeen.routes.analysis;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.ryanberdeen.routes.Route;
+
+/** The result of analyzing a route set with {@link RouteSetAnalyzer}.
+ */
+public class RouteSetAnalysis {
+	private ArrayList<Shadow> unreachableRoutes = new ArrayList<Shadow>();
+	private ArrayList<Shadow> unreachableForGeneration = new ArrayList<Shadow>();
+	private ArrayList<Overlap> overlaps = new ArrayList<Overlap>();
+	private ArrayList<Cost> costs = new ArrayList<Cost>();
+
+	void addUnreachableRoute(Shadow shadow) {
+		unreachableRoutes.add(shadow);
+	}
+
+	void addUnreachableForGeneration(Shadow shadow) {
+		unreachableForGeneration.add(shadow);
+	}
+
+	void addOverlap(Overlap overlap) {
+		overlaps.add(overlap);
+	}
+
+	void addCost(Cost cost) {
+		costs.add(cost);
+	}
+
+	/** Returns the routes that never match a request because an earlier route
+	 * matches every request they match.
+	 */
+	public List<Shadow> getUnreachableRoutes() {
+		return Collections.unmodifiableList(unreachableRoutes);
+	}
+
+	/** Returns the routes that are never chosen to generate a path from
+	 * parameters because an earlier route is always chosen instead. The routes
+	 * can still be used by name.
+	 */
+	public List<Shadow> getUnreachableForGeneration() {
+		return Collections.unmodifiableList(unreachableForGeneration);
+	}
+
+	/** Returns the pairs of routes that may match the same request.
+	 */
+	public List<Overlap> getOverlaps() {
+		return Collections.unmodifiableList(overlaps);
+	}
+
+	/** Returns the matching cost of each route, in route order.
+	 */
+	public List<Cost> getCosts() {
+		return Collections.unmodifiableList(costs);
+	}
+
+	/** Returns a key for each finding that indicates a problem, for comparison
+	 * with a baseline. Overlaps are not included. Keys identify routes by
+	 * their content rather than their position, so adding a route does not
+	 * change the keys of the others.
+	 */
+	public List<String> getProblemKeys() {
+		ArrayList<String> keys = new ArrayList<String>();
+		for (Shadow shadow : unreachableRoutes) {
+			keys.add("unreachable " + key(shadow.getRoute()));
+		}
+		for (Shadow shadow : unreachableForGeneration) {
+			keys.add("ungeneratable " + key(shadow.getRoute()));
+		}
+		return keys;
+	}
+
+	/** Writes a readable report.
+	 */
+	public void write(Writer writer) throws IOException {
+		writer.write("Unreachable routes: " + unreachableRoutes.size() + "\n");
+		for (Shadow shadow : unreachableRoutes) {
+			writer.write("  " + label(shadow.getRoute()) + " is shadowed by " + label(shadow.getShadowingRoute()) + "\n");
+		}
+
+		writer.write("Routes unreachable for generation: " + unreachableForGeneration.size() + "\n");
+		for (Shadow shadow : unreachableForGeneration) {
+			writer.write("  " + label(shadow.getRoute()) + " is shadowed by " + label(shadow.getShadowingRoute()) + "\n");
+		}
+
+		writer.write("Overlapping routes: " + overlaps.size() + "\n");
+		for (Overlap overlap : overlaps) {
+			writer.write("  " + label(overlap.getFirst()) + " overlaps " + label(overlap.getSecond()) + "\n");
+		}
+
+		writer.write("Costs:\n");
+		for (Cost cost : costs) {
+			writer.write("  " + label(cost.getRoute()) + ": " + cost.getPrecedingRegexTests() + " preceding regex tests, regex length " + cost.getRegexLength() + "\n");
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringWriter writer = new StringWriter();
+		try {
+			write(writer);
+		}
+		catch (IOException ex) {
+			throw new Error(ex);
+		}
+		return writer.toString();
+	}
+
+	/** Returns the name of the route, or its index and path template.
+	 */
+	static String label(Route route) {
+		if (route.getName() != null) {
+			return route.getName();
+		}
+		return "#" + route.getIndex() + " " + route.getPathPattern().getStringTemplate();
+	}
+
+	/** Returns the name of the route, or its methods, host pattern, path
+	 * template and static parameters.
+	 */
+	static String key(Route route) {
+		if (route.getName() != null) {
+			return route.getName();
+		}
+
+		StringBuilder key = new StringBuilder();
+		if (route.getMethods() != null) {
+			key.append(new TreeSet<String>(route.getMethods())).append(' ');
+		}
+		if (route.getExcludedMethods() != null) {
+			key.append('!').append(new TreeSet<String>(route.getExcludedMethods())).append(' ');
+		}
+		if (route.getHostPattern() != null) {
+			key.append(route.getHostPattern()).append(' ');
+		}
+		key.append(route.getPathPattern().getStringTemplate());
+		if (!route.getStaticParameterValues().isEmpty()) {
+			key.append(' ').append(new TreeMap<String, String>(route.getStaticParameterValues()));
+		}
+		return key.toString();
+	}
+
+	/** A route that is made unreachable by an earlier route.
+	 */
+	public static class Shadow {
+		private Route route;
+		private Route shadowingRoute;
+
+		Shadow(Route route, Route shadowingRoute) {
+			this.route = route;
+			this.shadowingRoute = shadowingRoute;
+		}
+
+		public Route getRoute() {
+			return route;
+		}
+
+		public Route getShadowingRoute() {
+			return shadowingRoute;
+		}
+	}
+
+	/** Two routes that may match the same request.
+	 */
+	public static class Overlap {
+		private Route first;
+		private Route second;
+
+		Overlap(Route first, Route second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		public Route getFirst() {
+			return first;
+		}
+
+		public Route getSecond() {
+			return second;
+		}
+	}
+
+	/** An estimate of the cost of matching a request to a route.
+	 */
+	public static class Cost {
+		private Route route;
+		private int precedingRegexTests;
+		private int regexLength;
+
+		Cost(Route route, int precedingRegexTests, int regexLength) {
+			this.route = route;
+			this.precedingRegexTests = precedingRegexTests;
+			this.regexLength = regexLength;
+		}
+
+		public Route getRoute() {
+			return route;
+		}
+
+		/** Returns the number of earlier routes whose regular expressions are
+		 * tested before this route can match.
+		 */
+		public int getPrecedingRegexTests() {
+			return precedingRegexTests;
+		}
+
+		public int getRegexLength() {
+			return regexLength;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.ryanberdeen.routes.analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ryanberdeen.routes.HostPattern;
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteOverlap;
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+import com.ryanberdeen.routes.builder.RouteSetBuilderTemplate;
+import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.PathPattern;
+import com.ryanberdeen.routes.path.PathSegment;
+import com.ryanberdeen.routes.path.StaticSegment;
+
+/** Finds routes in a prepared route set that can never be used, pairs of
+ * routes that overlap, and estimates the cost of matching each route.
+ *
+ * <p>The analysis is conservative: a route is only reported as unreachable if
+ * an earlier route certainly takes every request or parameter set it could
+ * handle.</p>
+ *
+ * <p>The analyzer can be run from a build with
+ * <code>exec-maven-plugin</code>'s <code>java</code> goal, using
+ * <code>com.ryanberdeen.routes.analysis.RouteSetAnalyzer</code> as the main
+ * class and the arguments <code>&lt;template class&gt; [baseline file]</code>.
+ * The template class is a {@link RouteSetBuilderTemplate} with a public
+ * no-argument constructor that defines the routes. If a baseline file is
+ * given, the build fails when the analysis finds a problem that is not listed
+ * in it. Adding <code>--write-baseline</code> writes the current problems to
+ * the baseline file instead.</p>
+ */
+public class RouteSetAnalyzer {
+	private static final String ENCODING = "UTF-8";
+
+	/** Analyzes the routes of a prepared route set.
+	 */
+	public static RouteSetAnalysis analyze(RouteSet routeSet) {
+		RouteSetAnalysis analysis = new RouteSetAnalysis();
+		List<Route> routes = routeSet.getRoutes();
+
+		for (int j = 0; j < routes.size(); j++) {
+			Route route = routes.get(j);
+			Route shadowingRoute = null;
+			Route generationShadowingRoute = null;
+			int precedingRegexTests = 0;
+
+			for (int i = 0; i < j; i++) {
+				Route earlier = routes.get(i);
+				if (!RouteOverlap.areMethodsDisjoint(earlier, route)) {
+					precedingRegexTests++;
+				}
+
+				if (!RouteOverlap.isDisjoint(earlier, route)) {
+					analysis.addOverlap(new RouteSetAnalysis.Overlap(earlier, route));
+					if (shadowingRoute == null && covers(earlier, route)) {
+						shadowingRoute = earlier;
+					}
+				}
+
+				if (generationShadowingRoute == null && hasSameGenerationRequirements(earlier, route)) {
+					generationShadowingRoute = earlier;
+				}
+			}
+
+			if (shadowingRoute != null) {
+				analysis.addUnreachableRoute(new RouteSetAnalysis.Shadow(route, shadowingRoute));
+			}
+			if (generationShadowingRoute != null) {
+				analysis.addUnreachableForGeneration(new RouteSetAnalysis.Shadow(route, generationShadowingRoute));
+			}
+			analysis.addCost(new RouteSetAnalysis.Cost(route, precedingRegexTests, route.getPathPattern().getRegex().pattern().length()));
+		}
+
+		return analysis;
+	}
+
+	/** Tests if every request matched by <code>route</code> is also matched by <code>earlier</code>.
+	 */
+	static boolean covers(Route earlier, Route route) {
+		return coversHosts(earlier.getHostPattern(), route.getHostPattern()) && coversMethods(earlier, route) && coversPaths(earlier.getPathPattern(), route.getPathPattern());
+	}
+
+	private static boolean coversHosts(HostPattern earlier, HostPattern pattern) {
+		if (earlier == null) {
+			return true;
+		}
+		else if (pattern == null) {
+			return false;
+		}
+		else if (earlier.isExact()) {
+			return pattern.isExact() && earlier.getDomain().equals(pattern.getDomain());
+		}
+		// a wildcard covers its domain's subdomains, and wildcards under them
+		return (!pattern.isExact() && earlier.getDomain().equals(pattern.getDomain())) || earlier.match(pattern.getDomain()) != null;
+	}
+
+	private static boolean coversMethods(Route earlier, Route route) {
+		if (route.getMethods() != null) {
+			for (String method : route.getMethods()) {
+				if (!earlier.allowsMethod(method)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		if (earlier.getMethods() != null) {
+			return false;
+		}
+		return earlier.getExcludedMethods() == null || (route.getExcludedMethods() != null && route.getExcludedMethods().containsAll(earlier.getExcludedMethods()));
+	}
+
+	private static boolean coversPaths(PathPattern earlier, PathPattern pattern) {
+		List<String> staticPaths = pattern.getStaticPaths();
+		if (staticPaths != null) {
+			for (String path : staticPaths) {
+				Map<String, String> parameters = earlier.match(path);
+				if (parameters == null || !acceptsTypedValues(earlier, parameters)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// otherwise, compare the patterns segment by segment
+		List<PathSegment> earlierSegments = earlier.getPathSegments();
+		List<PathSegment> segments = pattern.getPathSegments();
+		if (earlierSegments.size() != segments.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < segments.size(); i++) {
+			PathSegment earlierSegment = earlierSegments.get(i);
+			PathSegment segment = segments.get(i);
+			if (earlierSegment instanceof StaticSegment && segment instanceof StaticSegment) {
+				StaticSegment earlierStatic = (StaticSegment) earlierSegment;
+				StaticSegment staticSegment = (StaticSegment) segment;
+				if (!earlierStatic.getValue().equals(staticSegment.getValue()) || (earlierStatic.isRequired() && !staticSegment.isRequired())) {
+					return false;
+				}
+			}
+			else if (earlierSegment instanceof ParameterSegment && segment instanceof ParameterSegment) {
+				ParameterSegment earlierParameter = (ParameterSegment) earlierSegment;
+				ParameterSegment parameter = (ParameterSegment) segment;
+				if (earlierParameter.isRequired() && !parameter.isRequired()) {
+					return false;
+				}
+				// a typed parameter can reject values its regex matches
+				if (earlierParameter.getType() != null && (parameter.getType() == null || !earlierParameter.getType().toString().equals(parameter.getType().toString()))) {
+					return false;
+				}
+				// a default parameter that allows slashes matches anything a default parameter matches
+				boolean defaultsCovered = earlierParameter.hasDefaultRegex() && earlierParameter.isAllowSlashes() && parameter.hasDefaultRegex();
+				if (!earlierParameter.getRegex().equals(parameter.getRegex()) && !defaultsCovered) {
+					return false;
+				}
+			}
+			else {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/** Tests if the typed parameters of the pattern accept the matched values.
+	 */
+	private static boolean acceptsTypedValues(PathPattern pattern, Map<String, String> parameters) {
+		for (PathSegment segment : pattern.getPathSegments()) {
+			if (segment instanceof ParameterSegment) {
+				ParameterSegment parameter = (ParameterSegment) segment;
+				String value = parameters.get(parameter.getName());
+				if (parameter.getType() != null && value != null && !parameter.getType().accepts(value)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/** Tests if the routes need exactly the same parameters to generate a
+	 * path. The earlier route then always wins when generating from parameters.
+	 */
+	static boolean hasSameGenerationRequirements(Route earlier, Route route) {
+		return new HashSet<String>(earlier.getRequiredPathParameterNames()).equals(new HashSet<String>(route.getRequiredPathParameterNames()))
+			&& earlier.getRequiredStaticParameterValues().equals(route.getRequiredStaticParameterValues())
+			&& earlier.getOptionalStaticParameterValues().equals(route.getOptionalStaticParameterValues());
+	}
+
+	/** Runs the analysis. Failures are thrown rather than exiting the VM, so
+	 * that builds running the analyzer in their own VM fail cleanly.
+	 */
+	public static void main(String[] args) throws Exception {
+		ArrayList<String> arguments = new ArrayList<String>();
+		boolean writeBaseline = false;
+		for (String arg : args) {
+			if (arg.equals("--write-baseline")) {
+				writeBaseline = true;
+			}
+			else {
+				arguments.add(arg);
+			}
+		}
+
+		if (arguments.isEmpty()) {
+			throw new IllegalArgumentException("Usage: RouteSetAnalyzer [--write-baseline] <template class> [baseline file]");
+		}
+
+		RouteSetBuilderTemplate template = (RouteSetBuilderTemplate) Class.forName(arguments.get(0)).getDeclaredConstructor().newInstance();
+		RouteSetBuilder builder = new RouteSetBuilder();
+		template.applyTemplate(builder);
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		RouteSetAnalysis analysis = analyze(routeSet);
+		PrintWriter out = new PrintWriter(System.out);
+		analysis.write(out);
+		out.flush();
+
+		if (arguments.size() > 1) {
+			File baselineFile = new File(arguments.get(1));
+			if (writeBaseline) {
+				writeBaseline(baselineFile, analysis.getProblemKeys());
+			}
+			else {
+				Set<String> baseline = readBaseline(baselineFile);
+				ArrayList<String> regressions = new ArrayList<String>();
+				for (String key : analysis.getProblemKeys()) {
+					if (!baseline.contains(key)) {
+						regressions.add(key);
+					}
+				}
+
+				if (!regressions.isEmpty()) {
+					throw new IllegalStateException("Route set problems not in baseline " + baselineFile + ": " + regressions);
+				}
+			}
+		}
+	}
+
+	private static Set<String> readBaseline(File file) throws IOException {
+		HashSet<String> baseline = new HashSet<String>();
+		if (file.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (line.length() > 0 && !line.startsWith("#")) {
+						baseline.add(line);
+					}
+				}
+			}
+			finally {
+				reader.close();
+			}
+		}
+		return baseline;
+	}
+
+	private static void writeBaseline(File file, List<String> keys) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			for (String key : keys) {
+				writer.write(key);
+				writer.write('\n');
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.ryanberdeen.routes.path.ParameterSegment;
+import com.ryanberdeen.routes.path.ParameterType;
 import com.ryanberdeen.routes.path.PathPattern;
 import com.ryanberdeen.routes.path.PathSegment;
 import com.ryanberdeen.routes.path.StaticSegment;
@@ -14,29 +15,39 @@ public class PathPatternBuilder implements Cloneable {
 	private static final char PARAMETER_WITHOUT_SLASHES_PREFIX = ':';
 	private static final char PARAMETER_WITH_SLASHES_PREFIX = '*';
 
-	private HashSet<String> parameterNames;
-	private ArrayList<PathSegmentBuilder> pathSegmentBuilders;
+	/** The last segment. Segments are never modified and only point to the
+	 * segments before them, so builders share the segments they have in common.
+	 */
+	private SegmentNode lastSegment;
 
-	public PathPatternBuilder() {
-		pathSegmentBuilders = new ArrayList<PathSegmentBuilder>();
-		parameterNames = new HashSet<String>();
-	}
+	public PathPatternBuilder() {}
 
+	/** Creates a builder with the same segments, in constant time.
+	 */
 	public PathPatternBuilder(PathPatternBuilder that) {
-		pathSegmentBuilders = new ArrayList<PathSegmentBuilder>(that.pathSegmentBuilders);
-		parameterNames = new HashSet<String>(that.parameterNames);
+		lastSegment = that.lastSegment;
 	}
 
 	public PathPatternBuilder apply(Map<String, String> parameters, Map<String, String> staticParameterValues) {
 		PathPatternBuilder result = new PathPatternBuilder();
 
-		for (PathSegmentBuilder pathSegment : pathSegmentBuilders) {
+		for (PathSegmentBuilder pathSegment : getPathSegmentBuilders()) {
 			result.append(pathSegment.apply(parameters, staticParameterValues));
 		}
 
 		return result;
 	}
 
+	/** Returns the segments in order.
+	 */
+	private PathSegmentBuilder[] getPathSegmentBuilders() {
+		PathSegmentBuilder[] result = new PathSegmentBuilder[lastSegment != null ? lastSegment.size : 0];
+		for (SegmentNode node = lastSegment; node != null; node = node.previous) {
+			result[node.size - 1] = node.segment;
+		}
+		return result;
+	}
+
 	/** Appends a pattern.
 	 */
 	public PathPatternBuilder append(String pattern) {
@@ -66,36 +77,23 @@ public class PathPatternBuilder implements Cloneable {
 	/** Appends a PathSegmentBuilder.
 	 */
 	private PathPatternBuilder append(PathSegmentBuilder pathSegment) {
-		pathSegmentBuilders.add(pathSegment.clone());
-		if (pathSegment instanceof ParameterSegmentBuilder) {
-			ParameterSegmentBuilder parameter = (ParameterSegmentBuilder) pathSegment;
-			parameterNames.add(parameter.name);
-		}
+		lastSegment = new SegmentNode(pathSegment, lastSegment);
 		return this;
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public PathPatternBuilder clone() {
-		try {
-			PathPatternBuilder result = (PathPatternBuilder) super.clone();
-
-			result.pathSegmentBuilders = new ArrayList<PathSegmentBuilder>(pathSegmentBuilders.size());
-			for (PathSegmentBuilder parameter : pathSegmentBuilders) {
-				result.pathSegmentBuilders.add(parameter.clone());
-			}
-
-			result.parameterNames = (HashSet<String>) parameterNames.clone();
-
-			return result;
-		}
-		catch (CloneNotSupportedException ex) {
-			throw new Error(ex);
-		}
+		return new PathPatternBuilder(this);
 	}
 
 	public PathPattern createPathPattern(Set<String> optionalParameterNames, Map<String, String> parameterRegexes) {
-		ArrayList<PathSegment> pathSegments = new ArrayList<PathSegment>();
+		return createPathPattern(optionalParameterNames, parameterRegexes, null);
+	}
+
+	public PathPattern createPathPattern(Set<String> optionalParameterNames, Map<String, String> parameterRegexes, Map<String, ParameterType> parameterTypes) {
+		PathSegmentBuilder[] pathSegmentBuilders = getPathSegmentBuilders();
+		ArrayList<PathSegment> pathSegments = new ArrayList<PathSegment>(pathSegmentBuilders.length);
+		HashSet<String> parameterNames = new HashSet<String>();
 		for (PathSegmentBuilder pathSegmentBuidler : pathSegmentBuilders) {
 			if (pathSegmentBuidler instanceof ParameterSegmentBuilder) {
 				ParameterSegmentBuilder parameterSegmentBuilder = (ParameterSegmentBuilder) pathSegmentBuidler;
@@ -103,6 +101,7 @@ public class PathPatternBuilder implements Cloneable {
 				String regex = null;
 
 				String parameterName = parameterSegmentBuilder.name;
+				parameterNames.add(parameterName);
 				if (optionalParameterNames != null && optionalParameterNames.contains(parameterName)) {
 					required = false;
 				}
@@ -110,7 +109,8 @@ public class PathPatternBuilder implements Cloneable {
 				if (parameterRegexes != null) {
 					regex = parameterRegexes.get(parameterName);
 				}
-				pathSegments.add(parameterSegmentBuilder.createPathSegment(regex, required));
+				ParameterType type = parameterTypes != null ? parameterTypes.get(parameterName) : null;
+				pathSegments.add(parameterSegmentBuilder.createPathSegment(regex, type, required));
 			}
 			else {
 				StaticSegmentBuilder staticSegmentBuilder = (StaticSegmentBuilder) pathSegmentBuidler;
@@ -195,27 +195,39 @@ public class PathPatternBuilder implements Cloneable {
 	private void addParameterName(Object segment, Object parameterName, boolean allowSlashes) {
 		String segmentString = segment.toString();
 		if (segmentString.length() > 0) {
-			pathSegmentBuilders.add(new StaticSegmentBuilder(segment.toString(), true));
+			append(new StaticSegmentBuilder(segment.toString(), true));
 		}
 
 		if (parameterName != null) {
 			String parameterNameString = parameterName.toString();
 			if (parameterNameString.length() > 0) {
-				parameterNames.add(parameterNameString);
-				pathSegmentBuilders.add(new ParameterSegmentBuilder(parameterNameString, allowSlashes));
+				append(new ParameterSegmentBuilder(parameterNameString, allowSlashes));
 			}
 		}
 	}
 
-	private interface PathSegmentBuilder extends Cloneable {
-		public PathSegmentBuilder apply(Map<String, String> parameters, Map<String, String> staticParameterValues);
+	private static class SegmentNode {
+		private final PathSegmentBuilder segment;
+		private final SegmentNode previous;
+
+		/** The number of segments up to and including this one. */
+		private final int size;
+
+		SegmentNode(PathSegmentBuilder segment, SegmentNode previous) {
+			this.segment = segment;
+			this.previous = previous;
+			size = previous != null ? previous.size + 1 : 1;
+		}
+	}
 
-		public PathSegmentBuilder clone();
+	/** Builds a path segment. Segment builders are immutable. */
+	private interface PathSegmentBuilder {
+		public PathSegmentBuilder apply(Map<String, String> parameters, Map<String, String> staticParameterValues);
 	}
 
 	private static class StaticSegmentBuilder implements PathSegmentBuilder {
-		private String value;
-		private boolean required;
+		private final String value;
+		private final boolean required;
 
 		StaticSegmentBuilder(String value, boolean required) {
 			this.value = value;
@@ -223,22 +235,17 @@ public class PathPatternBuilder implements Cloneable {
 		}
 
 		public PathSegmentBuilder apply(Map<String, String> parameters, Map<String, String> staticParameterValues) {
-			return clone();
+			return this;
 		}
 
 		public PathSegment createPathSegment() {
 			return new StaticSegment(value, required);
 		}
-
-		@Override
-		public StaticSegmentBuilder clone() {
-			return new StaticSegmentBuilder(value, required);
-		}
 	}
 
 	private static class ParameterSegmentBuilder implements PathSegmentBuilder {
-		boolean allowSlashes;
-		private String name;
+		private final boolean allowSlashes;
+		private final String name;
 
 		ParameterSegmentBuilder(String name, boolean allowSlashes) {
 			this.name = name;
@@ -251,22 +258,12 @@ public class PathPatternBuilder implements Cloneable {
 				return new StaticSegmentBuilder(value, !value.equals(staticParameterValues.get(name)));
 			}
 			else {
-				return clone();
+				return this;
 			}
 		}
 
-		public PathSegment createPathSegment(String regex, boolean required) {
-			return new ParameterSegment(required, allowSlashes, name, regex);
-		}
-
-		@Override
-		public PathSegmentBuilder clone() {
-			try {
-				return (ParameterSegmentBuilder) super.clone();
-			}
-			catch (CloneNotSupportedException ex) {
-				throw new Error(ex);
-			}
+		public PathSegment createPathSegment(String regex, ParameterType type, boolean required) {
+			return new ParameterSegment(required, allowSlashes, name, regex, type);
 		}
 	}
 }
@@ -1,10 +1,11 @@
 package com.ryanberdeen.routes.builder;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
+import com.ryanberdeen.routes.HostPattern;
 import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.path.ParameterType;
 import com.ryanberdeen.routes.path.PathPattern;
 
 public class RouteBuilder implements RouteOptions, Cloneable {
@@ -13,26 +14,33 @@ public class RouteBuilder implements RouteOptions, Cloneable {
 	private static final String PATTERN = "pattern";
 	private static final String METHODS = "methods";
 	private static final String EXCLUDED_METHODS = "excludedMethods";
+	private static final String HOST = "host";
+	private static final String FORMATS = "formats";
 
-	private HashMap<String, String> parameterValues;
-	private HashMap<String, String> defaultStaticParameterValues;
-	private HashMap<String, String> parameterRegexes;
+	private SharedHashMap<String, String> parameterValues;
+	private SharedHashMap<String, String> defaultStaticParameterValues;
+	private SharedHashMap<String, String> parameterRegexes;
+	private SharedHashMap<String, ParameterType> parameterTypes;
 
-	private HashMap<String, String> options;
+	private SharedHashMap<String, String> options;
 
 	private String name;
 	private String namePrefix;
+	private String host;
 
 	private PathPatternBuilder pathPatternBuilder;
 
+	/** The method and format sets are replaced rather than modified, so they are shared with copies. */
 	private HashSet<String> methods;
 	private HashSet<String> excludedMethods;
+	private HashSet<String> formats;
 
 	public RouteBuilder() {
-		parameterValues = new HashMap<String, String>();
-		defaultStaticParameterValues = new HashMap<String, String>();
-		parameterRegexes = new HashMap<String, String>();
-		options = new HashMap<String, String>();
+		parameterValues = new SharedHashMap<String, String>();
+		defaultStaticParameterValues = new SharedHashMap<String, String>();
+		parameterRegexes = new SharedHashMap<String, String>();
+		parameterTypes = new SharedHashMap<String, ParameterType>();
+		options = new SharedHashMap<String, String>();
 
 		name = null;
 		namePrefix = "";
@@ -43,30 +51,39 @@ public class RouteBuilder implements RouteOptions, Cloneable {
 		excludedMethods = new HashSet<String>();
 	}
 
+	/** Creates a route builder with the same state. The state is shared
+	 * until either builder changes it, so copying takes constant time.
+	 */
 	public RouteBuilder(RouteBuilder that) {
-		parameterValues = new HashMap<String, String>(that.parameterValues);
-		defaultStaticParameterValues = new HashMap<String, String>(that.defaultStaticParameterValues);
-		parameterRegexes = new HashMap<String, String>(that.parameterRegexes);
-		options = new HashMap<String, String>(that.options);
+		parameterValues = that.parameterValues.copy();
+		defaultStaticParameterValues = that.defaultStaticParameterValues.copy();
+		parameterRegexes = that.parameterRegexes.copy();
+		parameterTypes = that.parameterTypes.copy();
+		options = that.options.copy();
 
 		name = that.name;
 		namePrefix = that.namePrefix;
+		host = that.host;
 
 		pathPatternBuilder = new PathPatternBuilder(that.pathPatternBuilder);
 
-		methods = new HashSet<String>(that.methods);
-		excludedMethods = new HashSet<String>(that.excludedMethods);
+		methods = that.methods;
+		excludedMethods = that.excludedMethods;
+		formats = that.formats;
 	}
 
 	public Route createRoute() {
-		PathPattern pathPattern = pathPatternBuilder.createPathPattern(parameterValues.keySet(), parameterRegexes);
+		Map<String, String> staticParameterValues = parameterValues.snapshot();
+		PathPattern pathPattern = pathPatternBuilder.createPathPattern(staticParameterValues.keySet(), parameterRegexes.asMap(), parameterTypes.asMap());
+		pathPattern.setFormats(formats);
 		Route route = new Route();
 		route.setPathPattern(pathPattern);
-		route.setStaticParameters(parameterValues);
-		route.setDefaultStaticParameters(defaultStaticParameterValues);
+		route.setStaticParameters(staticParameterValues);
+		route.setDefaultStaticParameters(defaultStaticParameterValues.snapshot());
 		route.setName(getName());
 		route.setMethods(getMethods());
 		route.setExcludedMethods(getExcludedMethods());
+		route.setHostPattern(host != null ? HostPattern.parse(host) : null);
 		return route;
 	}
 
@@ -103,6 +120,12 @@ public class RouteBuilder implements RouteOptions, Cloneable {
 		else if (EXCLUDED_METHODS.equals(optionName)) {
 			excludedMethods = parseMethodString(value);
 		}
+		else if (HOST.equals(optionName)) {
+			host = value;
+		}
+		else if (FORMATS.equals(optionName)) {
+			formats = parseFormatString(value);
+		}
 		else {
 			options.put(optionName, value);
 		}
@@ -127,6 +150,19 @@ public class RouteBuilder implements RouteOptions, Cloneable {
 		return methods;
 	}
 
+	private static HashSet<String> parseFormatString(String value) {
+		if (value == null || value.length() == 0 || value.equals("none")) {
+			return null;
+		}
+		String[] formatsArray = value.split(",");
+		HashSet<String> formats = new HashSet<String>(formatsArray.length * 2);
+		for (String format : formatsArray) {
+			formats.add(format.trim());
+		}
+
+		return formats;
+	}
+
 	public RouteBuilder setName(String name) {
 		this.name = name;
 		return this;
@@ -176,9 +212,18 @@ public class RouteBuilder implements RouteOptions, Cloneable {
 		return this;
 	}
 
+	/** Constrains the values of the parameter to the type. Typed values are
+	 * checked when a path matches the pattern, and their parsed values are
+	 * available from the {@link com.ryanberdeen.routes.RequestMatch}.
+	 */
+	public RouteBuilder setParameterType(String name, ParameterType type) {
+		parameterTypes.put(name, type);
+		return this;
+	}
+
 	public RouteBuilder apply(RouteBuilder routeBuilder) {
-		pathPatternBuilder = pathPatternBuilder.apply(routeBuilder.parameterValues, parameterValues);
-		parameterValues.putAll(routeBuilder.parameterValues);
+		pathPatternBuilder = pathPatternBuilder.apply(routeBuilder.parameterValues.asMap(), parameterValues.asMap());
+		parameterValues.putAll(routeBuilder.parameterValues.asMap());
 		return this;
 	}
 }
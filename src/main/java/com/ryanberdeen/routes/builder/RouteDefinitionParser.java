@@ -0,0 +1,300 @@
+package com.ryanberdeen.routes.builder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+import com.ryanberdeen.routes.path.ParameterType;
+
+/** Reads route definitions from text, applying them to a
+ * {@link RouteSetBuilder} as they are read.
+ *
+ * <p>Each line is a directive, followed by arguments separated by spaces.
+ * Arguments may be quoted with <code>"</code>, with <code>\</code> escaping
+ * the next character. A line ending in <code>{</code> opens a block that
+ * applies to a nested builder until a line containing <code>}</code>. Blank
+ * lines and lines starting with <code>#</code> are ignored. The directives
+ * are:</p>
+ *
+ * <dl>
+ * <dt><code>match &lt;pattern&gt; [attributes]</code></dt>
+ * <dd>defines a route</dd>
+ * <dt><code>scope [pattern] [attributes] {</code></dt>
+ * <dd>opens a nested builder, appending the pattern if there is one</dd>
+ * <dt><code>resources [attributes] {</code></dt>
+ * <dd>opens a nested builder that defines the {@link ResourceTemplate} templates</dd>
+ * <dt><code>resource &lt;pattern&gt; [attributes]</code></dt>
+ * <dd>defines the collection and member routes of a resource in a nested
+ * builder; must be inside a <code>resources</code> block</dd>
+ * <dt><code>template &lt;name or class&gt;</code></dt>
+ * <dd>applies a named template, or a new instance of a
+ * {@link RouteSetBuilderTemplate} class</dd>
+ * </dl>
+ *
+ * <p>Attributes are <code>name=value</code> pairs: a static parameter value,
+ * or, with the prefixes <code>default:</code>, <code>regex:</code>,
+ * <code>type:</code> and <code>@</code>, a default static parameter value, a
+ * parameter regular expression, a {@link ParameterType#forName(String)
+ * parameter type} or an option such as <code>@name</code>,
+ * <code>@methods</code> or <code>@host</code>. For example:</p>
+ *
+ * <pre>
+ * match / controller=home
+ * resources {
+ *   resource /people/ controller=people type:id=long
+ * }
+ * scope /admin/ controller=admin {
+ *   match :action @name=admin @methods=GET
+ * }
+ * </pre>
+ */
+public class RouteDefinitionParser {
+	private static final String DEFAULT_PREFIX = "default:";
+	private static final String REGEX_PREFIX = "regex:";
+	private static final String TYPE_PREFIX = "type:";
+	private static final char OPTION_PREFIX = '@';
+
+	private ArrayList<RouteSetBuilder> builders = new ArrayList<RouteSetBuilder>();
+	private ArrayList<String> arguments = new ArrayList<String>();
+	private StringBuilder argument = new StringBuilder();
+	private int lineNumber;
+	private boolean usesTemplateClasses;
+
+	private RouteDefinitionParser(RouteSetBuilder builder) {
+		builders.add(builder);
+	}
+
+	/** Reads route definitions, applying them to the builder.
+	 * @return <code>true</code> if a template was created from a class, in
+	 *         which case the routes depend on that code as well as on the
+	 *         definitions
+	 * @throws IllegalArgumentException if the definitions are invalid
+	 */
+	public static boolean parse(Reader reader, RouteSetBuilder builder) throws IOException {
+		RouteDefinitionParser parser = new RouteDefinitionParser(builder);
+		parser.parse(reader);
+		return parser.usesTemplateClasses;
+	}
+
+	private void parse(Reader reader) throws IOException {
+		lineNumber = 1;
+		boolean quoted = false;
+		boolean escaped = false;
+		boolean comment = false;
+		boolean hasArgument = false;
+
+		int c;
+		while ((c = reader.read()) != -1) {
+			if (c == '\n') {
+				if (escaped) {
+					throw error("dangling escape");
+				}
+				if (quoted) {
+					throw error("unterminated quote");
+				}
+				if (hasArgument) {
+					endArgument();
+					hasArgument = false;
+				}
+				endLine();
+				comment = false;
+				lineNumber++;
+			}
+			else if (comment) {
+				continue;
+			}
+			else if (escaped) {
+				argument.append((char) c);
+				escaped = false;
+			}
+			else if (c == '\\') {
+				escaped = true;
+				hasArgument = true;
+			}
+			else if (c == '"') {
+				quoted = !quoted;
+				hasArgument = true;
+			}
+			else if (quoted) {
+				argument.append((char) c);
+			}
+			else if (c == ' ' || c == '\t' || c == '\r') {
+				if (hasArgument) {
+					endArgument();
+					hasArgument = false;
+				}
+			}
+			else if (c == '#' && !hasArgument && arguments.isEmpty()) {
+				comment = true;
+			}
+			else {
+				argument.append((char) c);
+				hasArgument = true;
+			}
+		}
+
+		if (escaped) {
+			throw error("dangling escape");
+		}
+		if (quoted) {
+			throw error("unterminated quote");
+		}
+		if (hasArgument) {
+			endArgument();
+		}
+		endLine();
+
+		if (builders.size() > 1) {
+			throw error("missing }");
+		}
+	}
+
+	private void endArgument() {
+		arguments.add(argument.toString());
+		argument.setLength(0);
+	}
+
+	private void endLine() {
+		if (arguments.isEmpty()) {
+			return;
+		}
+
+		boolean opensBlock = arguments.get(arguments.size() - 1).equals("{");
+		if (opensBlock) {
+			arguments.remove(arguments.size() - 1);
+		}
+
+		try {
+			String directive = arguments.get(0);
+			RouteSetBuilder builder = builders.get(builders.size() - 1);
+			RouteSetBuilder nested = null;
+
+			if (directive.equals("}")) {
+				if (arguments.size() > 1 || opensBlock || builders.size() == 1) {
+					throw error("unexpected }");
+				}
+				builders.remove(builders.size() - 1);
+			}
+			else if (directive.equals("match")) {
+				if (arguments.size() < 2) {
+					throw error("match requires a pattern");
+				}
+				RouteBuilder routeBuilder = builder.match(arguments.get(1));
+				applyAttributes(routeBuilder, 2);
+			}
+			else if (directive.equals("scope")) {
+				nested = builder.nested();
+				int firstAttribute = 1;
+				if (arguments.size() > 1 && arguments.get(1).indexOf('=') < 0) {
+					nested.append(arguments.get(1));
+					firstAttribute = 2;
+				}
+				applyAttributes(nested, firstAttribute);
+			}
+			else if (directive.equals("resources")) {
+				nested = builder.template(new ResourceTemplate()).nested();
+				applyAttributes(nested, 1);
+			}
+			else if (directive.equals("resource")) {
+				if (arguments.size() < 2) {
+					throw error("resource requires a pattern");
+				}
+				RouteSetBuilder resource = builder.nested();
+				resource.append(arguments.get(1));
+				applyAttributes(resource, 2);
+				resource.template("collection");
+				resource.template("member");
+			}
+			else if (directive.equals("template")) {
+				if (arguments.size() != 2) {
+					throw error("template requires a name or class");
+				}
+				applyTemplate(builder, arguments.get(1));
+			}
+			else {
+				throw error("unknown directive " + directive);
+			}
+
+			if (opensBlock) {
+				if (nested == null) {
+					throw error(directive + " does not open a block");
+				}
+				builders.add(nested);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			if (e.getMessage() != null && e.getMessage().startsWith("Invalid route definition")) {
+				throw e;
+			}
+			throw error(e.getMessage());
+		}
+		finally {
+			arguments.clear();
+		}
+	}
+
+	private void applyAttributes(RouteOptions options, int first) {
+		for (int i = first; i < arguments.size(); i++) {
+			String attribute = arguments.get(i);
+			int separator = attribute.indexOf('=');
+			if (separator <= 0) {
+				throw error("expected name=value, found " + attribute);
+			}
+
+			String name = attribute.substring(0, separator);
+			String value = attribute.substring(separator + 1);
+			if (name.startsWith(DEFAULT_PREFIX)) {
+				options.setDefaultStaticParameterValue(name.substring(DEFAULT_PREFIX.length()), value);
+			}
+			else if (name.startsWith(REGEX_PREFIX)) {
+				options.setParameterRegex(name.substring(REGEX_PREFIX.length()), value);
+			}
+			else if (name.startsWith(TYPE_PREFIX)) {
+				try {
+					setParameterType(options, name.substring(TYPE_PREFIX.length()), ParameterType.forName(value));
+				}
+				catch (IllegalArgumentException e) {
+					throw error(e.getMessage());
+				}
+			}
+			else if (name.charAt(0) == OPTION_PREFIX) {
+				options.setOption(name.substring(1), value);
+			}
+			else {
+				options.setParameterValue(name, value);
+			}
+		}
+	}
+
+	/** Sets the type of a parameter. Types are set on the builders rather
+	 * than through {@link RouteOptions}, so that the interface is unchanged
+	 * for other implementations.
+	 */
+	private static void setParameterType(RouteOptions options, String name, ParameterType type) {
+		if (options instanceof RouteSetBuilder) {
+			((RouteSetBuilder) options).setParameterType(name, type);
+		}
+		else {
+			((RouteBuilder) options).setParameterType(name, type);
+		}
+	}
+
+	private void applyTemplate(RouteSetBuilder builder, String template) {
+		if (template.indexOf('.') < 0) {
+			builder.template(template);
+			return;
+		}
+
+		try {
+			builder.template((RouteSetBuilderTemplate) Class.forName(template).getDeclaredConstructor().newInstance());
+			usesTemplateClasses = true;
+		}
+		catch (Exception e) {
+			throw error("cannot create template " + template + ": " + e);
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("Invalid route definition at line " + lineNumber + ": " + message);
+	}
+}
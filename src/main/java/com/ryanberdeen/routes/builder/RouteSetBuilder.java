@@ -1,15 +1,19 @@
 package com.ryanberdeen.routes.builder;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.ryanberdeen.routes.Route;
 import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.path.ParameterType;
 
 public class RouteSetBuilder implements RouteListBuilder, RouteOptions {
-	private HashMap<String, RouteSetBuilderTemplate> templates = new HashMap<String, RouteSetBuilderTemplate>();
+	private SharedHashMap<String, RouteSetBuilderTemplate> templates = new SharedHashMap<String, RouteSetBuilderTemplate>();
 	private ArrayList<RouteListBuilder> routeListBuilders = new ArrayList<RouteListBuilder>();
 
 	private RouteBuilder routeDefinition;
@@ -19,7 +23,7 @@ public class RouteSetBuilder implements RouteListBuilder, RouteOptions {
 	}
 
 	public RouteSetBuilder(RouteSetBuilder that) {
-		templates = new HashMap<String, RouteSetBuilderTemplate>(that.templates);
+		templates = that.templates.copy();
 		routeDefinition = new RouteBuilder(that.routeDefinition);
 	}
 
@@ -67,6 +71,73 @@ public class RouteSetBuilder implements RouteListBuilder, RouteOptions {
 		return routeSet;
 	}
 
+	/** Creates the route set, creating the routes of nested builders
+	 * concurrently. The routes are in the same order as with
+	 * {@link #createRouteSet()}, and their regular expressions are compiled.
+	 * Tasks never wait for each other, so any executor can be used, including
+	 * a bounded pool or a fork-join pool. Routes are prepared when the route
+	 * set is, since preparation depends on its context parameters; use
+	 * {@link RouteSet#prepare(ExecutorService)} to prepare them concurrently
+	 * as well.
+	 */
+	public RouteSet createRouteSet(ExecutorService executor) throws InterruptedException {
+		ArrayList<Callable<List<Route>>> tasks = new ArrayList<Callable<List<Route>>>();
+		collectTasks(tasks);
+
+		ArrayList<Future<List<Route>>> results = new ArrayList<Future<List<Route>>>(tasks.size());
+		try {
+			for (Callable<List<Route>> task : tasks) {
+				results.add(executor.submit(task));
+			}
+
+			ArrayList<Route> routes = new ArrayList<Route>();
+			for (Future<List<Route>> result : results) {
+				routes.addAll(result.get());
+			}
+
+			RouteSet routeSet = new RouteSet();
+			routeSet.setRoutes(routes);
+			return routeSet;
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Failed to create routes", cause);
+		}
+		finally {
+			for (Future<List<Route>> result : results) {
+				result.cancel(true);
+			}
+		}
+	}
+
+	/** Adds a task for each run of routes defined directly in a builder,
+	 * in declaration order.
+	 */
+	private void collectTasks(List<Callable<List<Route>>> tasks) {
+		ArrayList<RouteListBuilder> run = new ArrayList<RouteListBuilder>();
+		for (RouteListBuilder routeListBuilder : routeListBuilders) {
+			if (routeListBuilder instanceof RouteSetBuilder) {
+				if (!run.isEmpty()) {
+					tasks.add(new CreateRoutesTask(run));
+					run = new ArrayList<RouteListBuilder>();
+				}
+				((RouteSetBuilder) routeListBuilder).collectTasks(tasks);
+			}
+			else {
+				run.add(routeListBuilder);
+			}
+		}
+		if (!run.isEmpty()) {
+			tasks.add(new CreateRoutesTask(run));
+		}
+	}
+
 	public RouteSetBuilder setTemplate(String name, RouteSetBuilderTemplate template) {
 		templates.put(name, template);
 		return this;
@@ -79,8 +150,11 @@ public class RouteSetBuilder implements RouteListBuilder, RouteOptions {
 	}
 
 	public RouteSetBuilder template(String name) {
-		// TODO throw exception if template isn't defined
-		return template(templates.get(name));
+		RouteSetBuilderTemplate template = templates.get(name);
+		if (template == null) {
+			throw new IllegalArgumentException("No template named " + name);
+		}
+		return template(template);
 	}
 
 	public void buildRouteList(List<Route> routes) {
@@ -108,12 +182,35 @@ public class RouteSetBuilder implements RouteListBuilder, RouteOptions {
 	public RouteBuilder setParameterRegex(String name, String regex) {
 		return routeDefinition.setParameterRegex(name, regex);
 	}
+
+	public RouteBuilder setParameterType(String name, ParameterType type) {
+		return routeDefinition.setParameterType(name, type);
+	}
 }
 
 interface RouteListBuilder {
 	public void buildRouteList(List<Route> routes);
 }
 
+class CreateRoutesTask implements Callable<List<Route>> {
+	private List<RouteListBuilder> routeListBuilders;
+
+	CreateRoutesTask(List<RouteListBuilder> routeListBuilders) {
+		this.routeListBuilders = routeListBuilders;
+	}
+
+	public List<Route> call() {
+		ArrayList<Route> routes = new ArrayList<Route>();
+		for (RouteListBuilder routeListBuilder : routeListBuilders) {
+			routeListBuilder.buildRouteList(routes);
+		}
+		for (Route route : routes) {
+			route.getPathPattern().getRegex();
+		}
+		return routes;
+	}
+}
+
 class SingleRouteDefinition implements RouteListBuilder {
 	private RouteBuilder routeDefinition;
 
@@ -0,0 +1,160 @@
+package com.ryanberdeen.routes.builder;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/** A hash map whose entries can be shared with copies. Copying takes
+ * constant time, and so does the first write after a copy: the entries
+ * written since the last copy are kept in a small local map, over a chain of
+ * immutable layers shared with the copies. Lookups read through the layers;
+ * when the chain grows deeper than {@link #MAX_DEPTH}, it is merged into a
+ * single layer.
+ */
+class SharedHashMap<K, V> {
+	/** The most layers a lookup reads through. */
+	static final int MAX_DEPTH = 8;
+
+	/** The entries shared with copies, or <code>null</code>. */
+	private Layer<K, V> parent;
+
+	/** The entries written since the last copy, or <code>null</code>. */
+	private HashMap<K, V> local;
+
+	SharedHashMap() {}
+
+	private SharedHashMap(Layer<K, V> parent) {
+		this.parent = parent;
+	}
+
+	/** Returns a map with the same entries. Neither map sees later
+	 * modifications of the other.
+	 */
+	SharedHashMap<K, V> copy() {
+		freeze();
+		return new SharedHashMap<K, V>(parent);
+	}
+
+	/** Returns the entries, which will not change if this map is modified.
+	 */
+	Map<K, V> snapshot() {
+		freeze();
+		if (parent == null) {
+			return Collections.emptyMap();
+		}
+		return parent;
+	}
+
+	/** Returns the current entries, which must not be modified.
+	 */
+	Map<K, V> asMap() {
+		return snapshot();
+	}
+
+	/** Moves the local entries into a new shared layer.
+	 */
+	private void freeze() {
+		if (local != null) {
+			parent = new Layer<K, V>(parent, local);
+			local = null;
+		}
+	}
+
+	V get(Object key) {
+		if (local != null) {
+			V value = local.get(key);
+			if (value != null || local.containsKey(key)) {
+				return value;
+			}
+		}
+		return parent != null ? parent.get(key) : null;
+	}
+
+	void put(K key, V value) {
+		modifiable().put(key, value);
+	}
+
+	void putAll(Map<? extends K, ? extends V> values) {
+		if (!values.isEmpty()) {
+			modifiable().putAll(values);
+		}
+	}
+
+	private HashMap<K, V> modifiable() {
+		if (local == null) {
+			local = new HashMap<K, V>(4);
+		}
+		return local;
+	}
+
+	/** An immutable map of entries over an optional parent layer.
+	 */
+	private static class Layer<K, V> extends AbstractMap<K, V> {
+		private final Layer<K, V> parent;
+		private final HashMap<K, V> entries;
+		private final int depth;
+
+		/** All entries of the layer and its parents, merged when first needed. */
+		private volatile Map<K, V> merged;
+
+		Layer(Layer<K, V> parent, HashMap<K, V> entries) {
+			if (parent != null && parent.depth == MAX_DEPTH) {
+				// merge the chain, so lookups read through at most MAX_DEPTH layers
+				HashMap<K, V> mergedEntries = new HashMap<K, V>(parent.getMerged());
+				mergedEntries.putAll(entries);
+				this.parent = null;
+				this.entries = mergedEntries;
+				depth = 1;
+			}
+			else {
+				this.parent = parent;
+				this.entries = entries;
+				depth = parent != null ? parent.depth + 1 : 1;
+			}
+		}
+
+		@Override
+		public V get(Object key) {
+			for (Layer<K, V> layer = this; layer != null; layer = layer.parent) {
+				V value = layer.entries.get(key);
+				if (value != null || layer.entries.containsKey(key)) {
+					return value;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			for (Layer<K, V> layer = this; layer != null; layer = layer.parent) {
+				if (layer.entries.containsKey(key)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			return getMerged().entrySet();
+		}
+
+		private Map<K, V> getMerged() {
+			Map<K, V> merged = this.merged;
+			if (merged == null) {
+				if (parent == null) {
+					merged = Collections.unmodifiableMap(entries);
+				}
+				else {
+					HashMap<K, V> mergedEntries = new HashMap<K, V>(parent.getMerged());
+					mergedEntries.putAll(entries);
+					merged = Collections.unmodifiableMap(mergedEntries);
+				}
+				this.merged = merged;
+			}
+			return merged;
+		}
+	}
+}
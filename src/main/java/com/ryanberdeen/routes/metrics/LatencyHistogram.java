@@ -0,0 +1,90 @@
+package com.ryanberdeen.routes.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A histogram of latencies with fixed, exponentially growing buckets.
+ * The upper bound of the first bucket is one microsecond; each following
+ * bucket doubles it, up to about one second. Longer latencies are counted in
+ * a final overflow bucket.
+ *
+ * <p>Like {@link StripedCounter}, counts go to a single row of buckets until
+ * two threads collide, after which each thread updates the row of its
+ * stripe. Rows are padded so that they don't share cache lines.</p>
+ */
+public class LatencyHistogram {
+	/** The number of bounded buckets. */
+	public static final int BUCKETS = 21;
+
+	private static final long FIRST_BOUND_NANOS = 1000;
+
+	/** The number of longs between rows. */
+	private static final int PADDING = 8;
+
+	private static final int ROW_LENGTH = BUCKETS + 1 + PADDING;
+
+	private final AtomicLongArray base = new AtomicLongArray(BUCKETS + 1);
+	private volatile AtomicLongArray rows;
+	private final StripedCounter totalNanos = new StripedCounter();
+
+	/** Returns the upper bound of the bucket, in nanoseconds.
+	 */
+	public static long getUpperBoundNanos(int bucket) {
+		return FIRST_BOUND_NANOS << bucket;
+	}
+
+	static int getBucket(long nanos) {
+		if (nanos <= FIRST_BOUND_NANOS) {
+			return 0;
+		}
+		int bucket = 64 - Long.numberOfLeadingZeros((nanos - 1) / FIRST_BOUND_NANOS);
+		return bucket < BUCKETS ? bucket : BUCKETS;
+	}
+
+	public void record(long nanos) {
+		int bucket = getBucket(nanos);
+		AtomicLongArray rows = this.rows;
+		if (rows == null) {
+			long count = base.get(bucket);
+			if (!base.compareAndSet(bucket, count, count + 1)) {
+				inflate().incrementAndGet(StripedCounter.stripe() * ROW_LENGTH + bucket);
+			}
+		}
+		else {
+			rows.incrementAndGet(StripedCounter.stripe() * ROW_LENGTH + bucket);
+		}
+		totalNanos.add(nanos);
+	}
+
+	private synchronized AtomicLongArray inflate() {
+		if (rows == null) {
+			rows = new AtomicLongArray(StripedCounter.STRIPES * ROW_LENGTH);
+		}
+		return rows;
+	}
+
+	/** Returns the number of recorded latencies in the bucket. Bucket
+	 * {@link #BUCKETS} holds the latencies above the last bound.
+	 */
+	public long getCount(int bucket) {
+		long count = base.get(bucket);
+		AtomicLongArray rows = this.rows;
+		if (rows != null) {
+			for (int i = bucket; i < rows.length(); i += ROW_LENGTH) {
+				count += rows.get(i);
+			}
+		}
+		return count;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i <= BUCKETS; i++) {
+			count += getCount(i);
+		}
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+}
@@ -0,0 +1,317 @@
+package com.ryanberdeen.routes.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Counts matches, misses and path generations for each route of a route set,
+ * and records match latencies in histograms.
+ *
+ * <p>Counts are always recorded. Latency is measured for one in
+ * {@link #getSampleInterval() sampleInterval} matches on each thread; an
+ * interval of <code>0</code> disables latency measurement. Counters are
+ * striped, so recording does not contend across threads.</p>
+ *
+ * <p>The metrics can be registered as a standard MBean, and written in the
+ * Prometheus text format with {@link #writeText(Writer)}.</p>
+ */
+public class RouteMetrics implements RouteMetricsMBean {
+	/** The sample interval of metrics created without one. Measuring the
+	 * latency of one match in 64 keeps the cost of reading the clock small
+	 * next to the match itself. */
+	public static final int DEFAULT_SAMPLE_INTERVAL = 64;
+
+	private static final int SAMPLE_TICK_PADDING = 16;
+
+	private volatile int sampleInterval;
+
+	/** Per-thread-stripe sample ticks. Updates are racy, which only affects
+	 * which matches are sampled. */
+	private final int[] sampleTicks = new int[StripedCounter.STRIPES * SAMPLE_TICK_PADDING];
+
+	private volatile String[] routeLabels = new String[0];
+	private volatile StripedCounter[] matchCounts = new StripedCounter[0];
+	private volatile StripedCounter[] generationCounts = new StripedCounter[0];
+	private volatile LatencyHistogram[] matchLatencies = new LatencyHistogram[0];
+
+	private final StripedCounter missCount = new StripedCounter();
+	private final LatencyHistogram missLatency = new LatencyHistogram();
+
+	/** Creates metrics that sample the latency of one in
+	 * {@link #DEFAULT_SAMPLE_INTERVAL} matches on each thread.
+	 */
+	public RouteMetrics() {
+		this(DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	public RouteMetrics(int sampleInterval) {
+		setSampleInterval(sampleInterval);
+	}
+
+	/** Resets the metrics for a new list of routes.
+	 * @param routeLabels the labels of the routes, indexed like the routes
+	 */
+	public void prepare(String[] routeLabels) {
+		int count = routeLabels.length;
+		StripedCounter[] matchCounts = new StripedCounter[count];
+		StripedCounter[] generationCounts = new StripedCounter[count];
+		LatencyHistogram[] matchLatencies = new LatencyHistogram[count];
+		for (int i = 0; i < count; i++) {
+			matchCounts[i] = new StripedCounter();
+			generationCounts[i] = new StripedCounter();
+			matchLatencies[i] = new LatencyHistogram();
+		}
+
+		this.matchCounts = matchCounts;
+		this.generationCounts = generationCounts;
+		this.matchLatencies = matchLatencies;
+		this.routeLabels = routeLabels.clone();
+	}
+
+	/** Registers the metrics with the platform MBean server.
+	 * @param objectName the name to register the metrics as, for example
+	 *        <code>com.ryanberdeen.routes:type=RouteMetrics</code>
+	 */
+	public void registerMBean(String objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(objectName));
+	}
+
+	/** Decides whether the latency of the next match on this thread should be measured.
+	 */
+	public boolean sample() {
+		int interval = sampleInterval;
+		if (interval <= 1) {
+			return interval == 1;
+		}
+		int tick = StripedCounter.stripe() * SAMPLE_TICK_PADDING;
+		int value = sampleTicks[tick] + 1;
+		if (value >= interval) {
+			value = 0;
+		}
+		sampleTicks[tick] = value;
+		return value == 0;
+	}
+
+	/** Records a match.
+	 * @param nanos the latency of the match, or a negative value if it was not sampled
+	 */
+	public void recordMatch(int routeIndex, long nanos) {
+		StripedCounter[] matchCounts = this.matchCounts;
+		LatencyHistogram[] matchLatencies = this.matchLatencies;
+		// the routes may have been prepared again since the match
+		if (routeIndex < matchCounts.length && routeIndex < matchLatencies.length) {
+			matchCounts[routeIndex].increment();
+			if (nanos >= 0) {
+				matchLatencies[routeIndex].record(nanos);
+			}
+		}
+	}
+
+	/** Records a request that matched no route.
+	 * @param nanos the latency of the match, or a negative value if it was not sampled
+	 */
+	public void recordMiss(long nanos) {
+		missCount.increment();
+		if (nanos >= 0) {
+			missLatency.record(nanos);
+		}
+	}
+
+	public void recordGeneration(int routeIndex) {
+		StripedCounter[] generationCounts = this.generationCounts;
+		if (routeIndex < generationCounts.length) {
+			generationCounts[routeIndex].increment();
+		}
+	}
+
+	public long getMatchCount(int routeIndex) {
+		return matchCounts[routeIndex].sum();
+	}
+
+	public long getGenerationCount(int routeIndex) {
+		return generationCounts[routeIndex].sum();
+	}
+
+	public LatencyHistogram getMatchLatency(int routeIndex) {
+		return matchLatencies[routeIndex];
+	}
+
+	public LatencyHistogram getMissLatency() {
+		return missLatency;
+	}
+
+	public long getMatchCount() {
+		return sum(matchCounts);
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getGenerationCount() {
+		return sum(generationCounts);
+	}
+
+	public int getSampleInterval() {
+		return sampleInterval;
+	}
+
+	/** Sets how often match latency is measured: once every
+	 * <code>sampleInterval</code> matches on each thread, or never if
+	 * <code>0</code>.
+	 */
+	public void setSampleInterval(int sampleInterval) {
+		if (sampleInterval < 0) {
+			throw new IllegalArgumentException("Invalid sample interval: " + sampleInterval);
+		}
+		this.sampleInterval = sampleInterval;
+	}
+
+	public String[] getRouteLabels() {
+		return routeLabels.clone();
+	}
+
+	public long[] getRouteMatchCounts() {
+		return sums(matchCounts);
+	}
+
+	public long[] getRouteGenerationCounts() {
+		return sums(generationCounts);
+	}
+
+	public long[] getRouteMeanMatchNanos() {
+		LatencyHistogram[] matchLatencies = this.matchLatencies;
+		long[] result = new long[matchLatencies.length];
+		for (int i = 0; i < result.length; i++) {
+			long count = matchLatencies[i].getCount();
+			result[i] = count > 0 ? matchLatencies[i].getTotalNanos() / count : 0;
+		}
+		return result;
+	}
+
+	public String getText() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeText(writer);
+		}
+		catch (IOException ex) {
+			throw new Error(ex);
+		}
+		return writer.toString();
+	}
+
+	/** Writes the metrics in the Prometheus text format.
+	 */
+	public void writeText(Writer writer) throws IOException {
+		String[] routeLabels = this.routeLabels;
+		StripedCounter[] matchCounts = this.matchCounts;
+		StripedCounter[] generationCounts = this.generationCounts;
+		LatencyHistogram[] matchLatencies = this.matchLatencies;
+
+		writer.write("# TYPE routes_matches_total counter\n");
+		for (int i = 0; i < routeLabels.length; i++) {
+			writeSample(writer, "routes_matches_total", routeLabels[i], null, matchCounts[i].sum());
+		}
+
+		writer.write("# TYPE routes_misses_total counter\n");
+		writeSample(writer, "routes_misses_total", null, null, missCount.sum());
+
+		writer.write("# TYPE routes_generations_total counter\n");
+		for (int i = 0; i < routeLabels.length; i++) {
+			writeSample(writer, "routes_generations_total", routeLabels[i], null, generationCounts[i].sum());
+		}
+
+		writer.write("# TYPE routes_match_latency_seconds histogram\n");
+		for (int i = 0; i < routeLabels.length; i++) {
+			writeHistogram(writer, routeLabels[i], matchLatencies[i]);
+		}
+		writeHistogram(writer, null, missLatency);
+	}
+
+	private static void writeHistogram(Writer writer, String route, LatencyHistogram histogram) throws IOException {
+		String name = "routes_match_latency_seconds";
+		long cumulativeCount = 0;
+		for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+			cumulativeCount += histogram.getCount(bucket);
+			writeSample(writer, name + "_bucket", route, formatSeconds(LatencyHistogram.getUpperBoundNanos(bucket)), cumulativeCount);
+		}
+		cumulativeCount += histogram.getCount(LatencyHistogram.BUCKETS);
+		writeSample(writer, name + "_bucket", route, "+Inf", cumulativeCount);
+
+		writer.write(name);
+		writer.write("_sum");
+		writeLabels(writer, route, null);
+		writer.write(' ');
+		writer.write(formatSeconds(histogram.getTotalNanos()));
+		writer.write('\n');
+
+		writeSample(writer, name + "_count", route, null, cumulativeCount);
+	}
+
+	private static void writeSample(Writer writer, String name, String route, String le, long value) throws IOException {
+		writer.write(name);
+		writeLabels(writer, route, le);
+		writer.write(' ');
+		writer.write(String.valueOf(value));
+		writer.write('\n');
+	}
+
+	/** Writes the labels of a sample. Misses have no route label.
+	 */
+	private static void writeLabels(Writer writer, String route, String le) throws IOException {
+		if (route == null && le == null) {
+			return;
+		}
+		writer.write('{');
+		if (route != null) {
+			writer.write("route=\"");
+			for (int i = 0, len = route.length(); i < len; i++) {
+				char c = route.charAt(i);
+				if (c == '"' || c == '\\') {
+					writer.write('\\');
+					writer.write(c);
+				}
+				else if (c == '\n') {
+					writer.write("\\n");
+				}
+				else {
+					writer.write(c);
+				}
+			}
+			writer.write('"');
+			if (le != null) {
+				writer.write(',');
+			}
+		}
+		if (le != null) {
+			writer.write("le=\"");
+			writer.write(le);
+			writer.write('"');
+		}
+		writer.write('}');
+	}
+
+	private static String formatSeconds(long nanos) {
+		return String.valueOf(nanos / 1e9);
+	}
+
+	private static long sum(StripedCounter[] counters) {
+		long sum = 0;
+		for (StripedCounter counter : counters) {
+			sum += counter.sum();
+		}
+		return sum;
+	}
+
+	private static long[] sums(StripedCounter[] counters) {
+		long[] result = new long[counters.length];
+		for (int i = 0; i < counters.length; i++) {
+			result[i] = counters[i].sum();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,29 @@
+package com.ryanberdeen.routes.metrics;
+
+/** The management interface of {@link RouteMetrics}.
+ */
+public interface RouteMetricsMBean {
+	public long getMatchCount();
+
+	public long getMissCount();
+
+	public long getGenerationCount();
+
+	public int getSampleInterval();
+
+	public void setSampleInterval(int sampleInterval);
+
+	public String[] getRouteLabels();
+
+	public long[] getRouteMatchCounts();
+
+	public long[] getRouteGenerationCounts();
+
+	/** Returns the mean sampled match latency of each route, in nanoseconds.
+	 */
+	public long[] getRouteMeanMatchNanos();
+
+	/** Returns the metrics in the Prometheus text format.
+	 */
+	public String getText();
+}
@@ -0,0 +1,72 @@
+package com.ryanberdeen.routes.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A counter that spreads contended updates across several cells.
+ * Updates go to a single value until two threads collide, after which each
+ * thread updates a cell chosen by its id. Cells are padded so that they don't
+ * share cache lines.
+ */
+public class StripedCounter {
+	/** The number of longs between cells. */
+	private static final int PADDING = 8;
+
+	public static final int STRIPES = stripeCount();
+
+	private final AtomicLong base = new AtomicLong();
+	private volatile AtomicLongArray cells;
+
+	private static int stripeCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int stripes = 1;
+		while (stripes < processors && stripes < 64) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+
+	/** Returns the stripe of the current thread, in <code>[0, STRIPES)</code>.
+	 */
+	public static int stripe() {
+		long id = Thread.currentThread().getId();
+		return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (STRIPES - 1);
+	}
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long x) {
+		AtomicLongArray cells = this.cells;
+		if (cells == null) {
+			long value = base.get();
+			if (base.compareAndSet(value, value + x)) {
+				return;
+			}
+			cells = inflate();
+		}
+		cells.addAndGet(stripe() * PADDING, x);
+	}
+
+	private synchronized AtomicLongArray inflate() {
+		if (cells == null) {
+			cells = new AtomicLongArray(STRIPES * PADDING);
+		}
+		return cells;
+	}
+
+	/** Returns the current total. The total is not an atomic snapshot if
+	 * updates are in progress.
+	 */
+	public long sum() {
+		long sum = base.get();
+		AtomicLongArray cells = this.cells;
+		if (cells != null) {
+			for (int i = 0; i < cells.length(); i += PADDING) {
+				sum += cells.get(i);
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,96 @@
+package com.ryanberdeen.routes.path;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Reuses the matchers of a pattern. Each thread takes a matcher from a slot
+ * chosen by its id, and puts it back when it is done, so that matching
+ * usually allocates no matcher. A thread that finds its slot empty, because
+ * another thread sharing the slot is using its matcher, creates a new one.
+ *
+ * <p>Matchers are held by the pool rather than by the threads, so they are
+ * shared by short-lived threads, such as virtual threads, and are collected
+ * with the pattern rather than pinned by pooled container threads. Pooled
+ * matchers are reset, so they don't keep their last input.</p>
+ *
+ * <p>A pool starts with a single slot, so a pattern that is rarely matched
+ * costs one small array. When threads often find their slots empty, the
+ * slots are doubled, up to {@link #MAX_SLOTS}; slots are then
+ * {@link #PADDING} references apart, so that threads using different slots
+ * don't share cache lines. The slots of a fully grown pool take about
+ * 1 KB, besides the matchers.</p>
+ */
+final class MatcherPool {
+	/** The most slots a pool grows to. */
+	static final int MAX_SLOTS = maxSlotCount();
+
+	/** Space between slots, in references, so that slots don't share cache lines. */
+	private static final int PADDING = 16;
+
+	private final Pattern pattern;
+
+	/** The slots, {@link #PADDING} apart once there is more than one. */
+	private volatile AtomicReferenceArray<Matcher> matchers = new AtomicReferenceArray<Matcher>(1);
+
+	/** The number of times a thread found its slot empty since the slots
+	 * last grew. Updates are racy, which only affects when the slots grow. */
+	private int misses;
+
+	MatcherPool(Pattern pattern) {
+		this.pattern = pattern;
+	}
+
+	private static int maxSlotCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int slots = 1;
+		while (slots < processors && slots < 16) {
+			slots <<= 1;
+		}
+		return slots;
+	}
+
+	/** Returns the number of slots.
+	 */
+	int getSlotCount() {
+		return getSlotCount(matchers);
+	}
+
+	private static int getSlotCount(AtomicReferenceArray<Matcher> matchers) {
+		return matchers.length() == 1 ? 1 : matchers.length() / PADDING;
+	}
+
+	private static int index(AtomicReferenceArray<Matcher> matchers) {
+		int slots = getSlotCount(matchers);
+		if (slots == 1) {
+			return 0;
+		}
+		long id = Thread.currentThread().getId();
+		return ((int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (slots - 1)) * PADDING;
+	}
+
+	/** Returns a matcher for the input. The matcher must be
+	 * {@link #release(Matcher) released} by the same thread.
+	 */
+	Matcher acquire(CharSequence input) {
+		AtomicReferenceArray<Matcher> matchers = this.matchers;
+		Matcher matcher = matchers.getAndSet(index(matchers), null);
+		if (matcher != null) {
+			return matcher.reset(input);
+		}
+
+		// each slot is empty once after growing, so only grow on repeated misses
+		int slots = getSlotCount(matchers);
+		if (slots < MAX_SLOTS && ++misses > slots * 4) {
+			misses = 0;
+			this.matchers = new AtomicReferenceArray<Matcher>(slots * 2 * PADDING);
+		}
+		return pattern.matcher(input);
+	}
+
+	void release(Matcher matcher) {
+		matcher.reset("");
+		AtomicReferenceArray<Matcher> matchers = this.matchers;
+		matchers.set(index(matchers), matcher);
+	}
+}
@@ -11,30 +11,66 @@ public class ParameterSegment implements PathSegment, Cloneable {
 	private boolean allowSlashes;
 	private String name;
 	private String regex;
+	private ParameterType type;
 
 	public ParameterSegment(boolean required, boolean allowSlashes, String name) {
 		this(required, allowSlashes, name, null);
 	}
 
 	public ParameterSegment(boolean required, boolean allowSlashes, String name, String regex) {
+		this(required, allowSlashes, name, regex, null);
+	}
+
+	public ParameterSegment(boolean required, boolean allowSlashes, String name, String regex, ParameterType type) {
 		this.required = required;
 		this.allowSlashes = allowSlashes;
 		this.name = name;
 		this.regex = regex;
+		this.type = type;
 	}
 
 	public String getName() {
 		return name;
 	}
 
-	public void appendRegex(StringBuilder regexBuilder) {
-		regexBuilder.append('(');
+	void intern(SymbolTable symbols) {
+		name = symbols.intern(name);
+		regex = symbols.intern(regex);
+	}
+
+	public boolean isRequired() {
+		return required;
+	}
+
+	public boolean isAllowSlashes() {
+		return allowSlashes;
+	}
+
+	/** Returns the type values of this parameter must have, or <code>null</code>
+	 * if they are only constrained by the regular expression.
+	 */
+	public ParameterType getType() {
+		return type;
+	}
+
+	/** Tests if the parameter uses the default regular expression.
+	 */
+	public boolean hasDefaultRegex() {
+		return regex == null;
+	}
+
+	/** Returns the regular expression values of this parameter must match.
+	 */
+	public String getRegex() {
 		if (regex != null) {
-			regexBuilder.append(regex);
-		}
-		else {
-			regexBuilder.append(allowSlashes ? VALUE_WITH_SLASHES : VALUE_WITHOUT_SLASHES);
+			return regex;
 		}
+		return allowSlashes ? VALUE_WITH_SLASHES : VALUE_WITHOUT_SLASHES;
+	}
+
+	public void appendRegex(StringBuilder regexBuilder) {
+		regexBuilder.append('(');
+		regexBuilder.append(getRegex());
 		if (!required) {
 			regexBuilder.append("|$");
 		}
@@ -56,7 +92,7 @@ public class ParameterSegment implements PathSegment, Cloneable {
 		if (result == null) {
 			throw new RuntimeException("No value for [" + name + "]");
 		}
-		pathBuilder.append(result, required || !result.equals(staticParameterValues.get(name)));
+		pathBuilder.append(result, required || !result.equals(staticParameterValues.get(name)), allowSlashes ? PercentEncoder.PATH : PercentEncoder.PATH_SEGMENT);
 	}
 
 	public void appendTemplate(StringBuilder templateBuilder) {
@@ -0,0 +1,268 @@
+package com.ryanberdeen.routes.path;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/** Constrains the values of a path parameter. Values are checked by scanning
+ * their characters rather than with a regular expression. Numeric types and
+ * UUIDs are parsed while they are checked, into <code>long</code> slots that
+ * are kept with the match.
+ */
+public abstract class ParameterType {
+	/** A decimal <code>int</code>, with an optional minus sign. */
+	public static final ParameterType INT = new IntegerType("int", Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+	/** A decimal <code>long</code>, with an optional minus sign. */
+	public static final ParameterType LONG = new IntegerType("long", Long.MIN_VALUE, Long.MAX_VALUE);
+
+	/** A UUID in its canonical 36 character form, in either case. */
+	public static final ParameterType UUID = new UuidType();
+
+	/** Lower case letters and digits in words separated by single hyphens. */
+	public static final ParameterType SLUG = new SlugType();
+
+	private static final String ENUM_PREFIX = "enum:";
+
+	private final String name;
+
+	ParameterType(String name) {
+		this.name = name;
+	}
+
+	/** Returns the type named by the string: <code>int</code>, <code>long</code>,
+	 * <code>uuid</code>, <code>slug</code>, or <code>enum:</code> followed by
+	 * comma-separated values.
+	 * @throws IllegalArgumentException if the name is not a type
+	 */
+	public static ParameterType forName(String name) {
+		if (name.equals(INT.name)) {
+			return INT;
+		}
+		else if (name.equals(LONG.name)) {
+			return LONG;
+		}
+		else if (name.equals(UUID.name)) {
+			return UUID;
+		}
+		else if (name.equals(SLUG.name)) {
+			return SLUG;
+		}
+		else if (name.startsWith(ENUM_PREFIX) && name.length() > ENUM_PREFIX.length()) {
+			return enumOf(name.substring(ENUM_PREFIX.length()).split(","));
+		}
+		throw new IllegalArgumentException("Unknown parameter type " + name);
+	}
+
+	/** Returns a type that accepts only the values.
+	 */
+	public static ParameterType enumOf(String... values) {
+		return new EnumType(values);
+	}
+
+	/** Returns the number of <code>long</code> slots a parsed value occupies.
+	 */
+	public int getSlotCount() {
+		return 0;
+	}
+
+	/** Tests if the value is accepted, storing its parsed form in
+	 * <code>slots</code>, starting at <code>offset</code>.
+	 */
+	public abstract boolean parse(String value, long[] slots, int offset);
+
+	/** Tests if the value is accepted.
+	 */
+	public boolean accepts(String value) {
+		return parse(value, new long[getSlotCount()], 0);
+	}
+
+	/** Returns a value the type accepts.
+	 */
+	public abstract String getSampleValue();
+
+	/** Returns the name of the type, which {@link #forName(String)} accepts.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static class IntegerType extends ParameterType {
+		private final long min;
+		private final long max;
+
+		IntegerType(String name, long min, long max) {
+			super(name);
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		public int getSlotCount() {
+			return 1;
+		}
+
+		@Override
+		public boolean parse(String value, long[] slots, int offset) {
+			int length = value.length();
+			boolean negative = length > 0 && value.charAt(0) == '-';
+			int i = negative ? 1 : 0;
+			if (i == length) {
+				return false;
+			}
+
+			// accumulate negatively, since the range of negative values is larger
+			long limit = negative ? min : -max;
+			long result = 0;
+			for (; i < length; i++) {
+				int digit = value.charAt(i) - '0';
+				if (digit < 0 || digit > 9 || result < (limit + digit) / 10) {
+					return false;
+				}
+				result = result * 10 - digit;
+			}
+
+			slots[offset] = negative ? result : -result;
+			return true;
+		}
+
+		@Override
+		public String getSampleValue() {
+			return "1";
+		}
+	}
+
+	private static class UuidType extends ParameterType {
+		UuidType() {
+			super("uuid");
+		}
+
+		@Override
+		public int getSlotCount() {
+			return 2;
+		}
+
+		@Override
+		public boolean parse(String value, long[] slots, int offset) {
+			if (value.length() != 36) {
+				return false;
+			}
+
+			long mostSignificantBits = 0;
+			long leastSignificantBits = 0;
+			for (int i = 0; i < 36; i++) {
+				char c = value.charAt(i);
+				if (i == 8 || i == 13 || i == 18 || i == 23) {
+					if (c != '-') {
+						return false;
+					}
+					continue;
+				}
+
+				int digit = hexDigit(c);
+				if (digit < 0) {
+					return false;
+				}
+				if (i < 18) {
+					mostSignificantBits = (mostSignificantBits << 4) | digit;
+				}
+				else {
+					leastSignificantBits = (leastSignificantBits << 4) | digit;
+				}
+			}
+
+			slots[offset] = mostSignificantBits;
+			slots[offset + 1] = leastSignificantBits;
+			return true;
+		}
+
+		/** Returns the value of an ASCII hexadecimal digit, or <code>-1</code>.
+		 */
+		private static int hexDigit(char c) {
+			if (c >= '0' && c <= '9') {
+				return c - '0';
+			}
+			else if (c >= 'a' && c <= 'f') {
+				return c - 'a' + 10;
+			}
+			else if (c >= 'A' && c <= 'F') {
+				return c - 'A' + 10;
+			}
+			return -1;
+		}
+
+		@Override
+		public String getSampleValue() {
+			return "00000000-0000-0000-0000-000000000001";
+		}
+	}
+
+	private static class SlugType extends ParameterType {
+		SlugType() {
+			super("slug");
+		}
+
+		@Override
+		public boolean parse(String value, long[] slots, int offset) {
+			int length = value.length();
+			if (length == 0) {
+				return false;
+			}
+
+			boolean afterHyphen = true;
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c == '-') {
+					if (afterHyphen) {
+						return false;
+					}
+					afterHyphen = true;
+				}
+				else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+					afterHyphen = false;
+				}
+				else {
+					return false;
+				}
+			}
+			return !afterHyphen;
+		}
+
+		@Override
+		public String getSampleValue() {
+			return "sample-1";
+		}
+	}
+
+	private static class EnumType extends ParameterType {
+		private final Set<String> values;
+
+		EnumType(String[] values) {
+			super(ENUM_PREFIX + join(values));
+			this.values = Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(values)));
+		}
+
+		private static String join(String[] values) {
+			StringBuilder result = new StringBuilder();
+			for (String value : values) {
+				if (result.length() > 0) {
+					result.append(',');
+				}
+				result.append(value);
+			}
+			return result.toString();
+		}
+
+		@Override
+		public boolean parse(String value, long[] slots, int offset) {
+			return values.contains(value);
+		}
+
+		@Override
+		public String getSampleValue() {
+			return values.iterator().next();
+		}
+	}
+}
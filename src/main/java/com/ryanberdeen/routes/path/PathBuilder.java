@@ -1,19 +1,49 @@
 package com.ryanberdeen.routes.path;
 
+/** Builds a path from segment values. Values that are not required are
+ * dropped if no required value follows them.
+ */
 public class PathBuilder {
-	private int requiredLength = 0;
-	private StringBuilder stringBuilder = new StringBuilder();
+	private int requiredLength;
+	private StringBuilder stringBuilder;
+
+	public PathBuilder() {
+		this(new StringBuilder());
+	}
+
+	/** Creates a path builder that appends to an existing builder.
+	 */
+	public PathBuilder(StringBuilder stringBuilder) {
+		this.stringBuilder = stringBuilder;
+		requiredLength = stringBuilder.length();
+	}
 
 	public void append(Object o, boolean required) {
-		String string = o.toString();
-		stringBuilder.append(string);
+		stringBuilder.append(o.toString());
+		if (required) {
+			requiredLength = stringBuilder.length();
+		}
+	}
+
+	/** Appends a value, escaping it with the encoder.
+	 */
+	public void append(Object o, boolean required, PercentEncoder encoder) {
+		encoder.encode(o.toString(), stringBuilder);
 		if (required) {
-			requiredLength += string.length();
+			requiredLength = stringBuilder.length();
 		}
 	}
 
+	/** Removes trailing values that are not required from the underlying builder.
+	 * @return the underlying builder
+	 */
+	public StringBuilder finish() {
+		stringBuilder.setLength(requiredLength);
+		return stringBuilder;
+	}
+
 	@Override
 	public String toString() {
-		return stringBuilder.toString().substring(0, requiredLength);
+		return stringBuilder.substring(0, requiredLength);
 	}
-}
\ No newline at end of file
+}
@@ -1,6 +1,12 @@
 package com.ryanberdeen.routes.path;
 
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -12,13 +18,19 @@ import java.util.regex.Pattern;
  *
  */
 public class PathPattern {
+	/** The parameter a format suffix is captured as. */
+	public static final String FORMAT_PARAMETER = "format";
+
 	private static final char[] PATTERN_SPECIAL_CHARS = ".\\+*?[^]$(){}=!<>|:".toCharArray();
 
 	/** The regular expression this pattern uses to test paths. */
 	private Pattern regex;
 
-	/** The parameter names this pattern will provide. */
-	private Set<String> parameterNames;
+	/** Reuses matchers for the regular expression; created with it. */
+	private volatile MatcherPool matcherPool;
+
+	/** The parameter names this pattern will provide, sorted. */
+	private String[] parameterNames;
 
 	/** The path segments that make up this pattern.
 	 *  These segments are used to generate the regular expression and generate
@@ -26,9 +38,13 @@ public class PathPattern {
 	 */
 	private List<PathSegment> pathSegments;
 
+	/** The format suffixes the pattern accepts, or <code>null</code> for none. */
+	private Set<String> formats;
+
 	public PathPattern(List<PathSegment> pathSegments, Set<String> parameterNames) {
 		this.pathSegments = pathSegments;
-		this.parameterNames = parameterNames;
+		this.parameterNames = parameterNames.toArray(new String[parameterNames.size()]);
+		Arrays.sort(this.parameterNames);
 	}
 
 	private static boolean isPatternSpecialChar(char c) {
@@ -61,13 +77,80 @@ public class PathPattern {
 	/** Returns the set of parameter names included in the path.
 	 */
 	public Set<String> getParameterNames() {
-		return parameterNames;
+		return new AbstractSet<String>() {
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && Arrays.binarySearch(parameterNames, o) >= 0;
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return Collections.unmodifiableList(Arrays.asList(parameterNames)).iterator();
+			}
+
+			@Override
+			public int size() {
+				return parameterNames.length;
+			}
+		};
+	}
+
+	/** Replaces the parameter names and static values of this pattern with
+	 * their instances in the symbol table.
+	 */
+	public void intern(SymbolTable symbols) {
+		for (int i = 0; i < parameterNames.length; i++) {
+			parameterNames[i] = symbols.intern(parameterNames[i]);
+		}
+		for (PathSegment segment : pathSegments) {
+			if (segment instanceof ParameterSegment) {
+				((ParameterSegment) segment).intern(symbols);
+			}
+			else if (segment instanceof StaticSegment) {
+				((StaticSegment) segment).intern(symbols);
+			}
+		}
 	}
 
 	public List<PathSegment> getPathSegments() {
 		return pathSegments;
 	}
 
+	/** Sets the format suffixes, such as <code>json</code>, that may follow
+	 * paths matched by this pattern. The format is matched and generated as
+	 * the {@link #FORMAT_PARAMETER} parameter.
+	 * @param formats the formats, without a leading dot, or <code>null</code> for none
+	 */
+	public void setFormats(Set<String> formats) {
+		this.formats = formats != null && !formats.isEmpty() ? formats : null;
+	}
+
+	/** Returns the format suffixes the pattern accepts, or <code>null</code> if it accepts none.
+	 */
+	public Set<String> getFormats() {
+		return formats;
+	}
+
+	public boolean acceptsFormat(String format) {
+		return formats != null && formats.contains(format);
+	}
+
+	/** Returns the index of the dot that starts the extension of the last
+	 * segment of the path, or <code>-1</code> if it has no extension.
+	 */
+	public static int getFormatIndex(String path) {
+		for (int i = path.length() - 1; i > 0; i--) {
+			char c = path.charAt(i);
+			if (c == '/') {
+				break;
+			}
+			else if (c == '.') {
+				return i < path.length() - 1 && path.charAt(i - 1) != '/' ? i : -1;
+			}
+		}
+		return -1;
+	}
+
 	/** Lazily create the regular expression.
 	 */
 	public Pattern getRegex() {
@@ -86,6 +169,16 @@ public class PathPattern {
 		return regex;
 	}
 
+	private MatcherPool getMatcherPool() {
+		MatcherPool matcherPool = this.matcherPool;
+		if (matcherPool == null) {
+			// a racing thread may replace the pool, which only discards its matchers
+			matcherPool = new MatcherPool(getRegex());
+			this.matcherPool = matcherPool;
+		}
+		return matcherPool;
+	}
+
 	/** Matches the pattern against the path. If the path matches, a map of parameter
 	 * values is returned. <code>null</code> indicates no match.
 	 * @param path the path to test
@@ -93,15 +186,21 @@ public class PathPattern {
 	 */
 	public Map<String, String> match(String path) {
 		HashMap<String, String> result = null;
-		Matcher matcher = getRegex().matcher(path);
-		if (matcher.matches()) {
-			result = new HashMap<String, String>();
+		MatcherPool matcherPool = getMatcherPool();
+		Matcher matcher = matcherPool.acquire(path);
+		try {
+			if (matcher.matches()) {
+				result = new HashMap<String, String>();
 
-			int matchNumber = 1;
-			for (PathSegment segment : pathSegments) {
-				matchNumber += segment.consumeMatch(matcher, matchNumber, result);
+				int matchNumber = 1;
+				for (PathSegment segment : pathSegments) {
+					matchNumber += segment.consumeMatch(matcher, matchNumber, result);
+				}
 			}
 		}
+		finally {
+			matcherPool.release(matcher);
+		}
 
 		return result;
 	}
@@ -109,12 +208,92 @@ public class PathPattern {
 	/** Builds a path using the parameters.
 	 */
 	public String buildPath(Map<String, Object> parameters, Map<String, String> staticParameterValues, Map<String, String> contextParameters) {
-		PathBuilder pathBuilder = new PathBuilder();
+		return buildPath(new StringBuilder(), parameters, staticParameterValues, contextParameters).toString();
+	}
+
+	/** Builds a path using the parameters, appending it to the builder. If the
+	 * pattern accepts formats and the format parameter is provided, it is
+	 * appended as the extension of the path.
+	 * @return the builder
+	 */
+	public StringBuilder buildPath(StringBuilder result, Map<String, Object> parameters, Map<String, String> staticParameterValues, Map<String, String> contextParameters) {
+		int start = result.length();
+		PathBuilder pathBuilder = new PathBuilder(result);
 		for (PathSegment segment : pathSegments) {
 			segment.appendPath(pathBuilder, parameters, staticParameterValues, contextParameters);
 		}
+		pathBuilder.finish();
+
+		Object format = formats != null ? parameters.get(FORMAT_PARAMETER) : null;
+		if (format != null) {
+			int length = result.length();
+			if (length - start > 1 && result.charAt(length - 1) == '/') {
+				result.setLength(length - 1);
+			}
+			result.append('.');
+			PercentEncoder.PATH_SEGMENT.encode(format.toString(), result);
+		}
+
+		return result;
+	}
+
+	/** Returns the literal text that every path matched by this pattern starts with.
+	 */
+	public String getLiteralPrefix() {
+		StringBuilder prefix = new StringBuilder();
+		for (PathSegment segment : pathSegments) {
+			if (!(segment instanceof StaticSegment) || !((StaticSegment) segment).isRequired()) {
+				break;
+			}
+
+			String value = ((StaticSegment) segment).getValue();
+			if (value.endsWith("/")) {
+				// a trailing slash is optional at the end of the path
+				prefix.append(value, 0, value.length() - 1);
+				break;
+			}
+			prefix.append(value);
+		}
 
-		return pathBuilder.toString();
+		return prefix.toString();
+	}
+
+	/** Returns every path matched by this pattern, if it has no parameters.
+	 * @return the matched paths, or <code>null</code> if the pattern has parameters
+	 */
+	public List<String> getStaticPaths() {
+		// a path can end wherever the regex allows the end of input, or after the last segment
+		LinkedHashSet<String> candidates = new LinkedHashSet<String>();
+		StringBuilder path = new StringBuilder();
+		for (PathSegment segment : pathSegments) {
+			if (!(segment instanceof StaticSegment)) {
+				return null;
+			}
+
+			StaticSegment staticSegment = (StaticSegment) segment;
+			String value = staticSegment.getValue();
+			if (!staticSegment.isRequired()) {
+				candidates.add(path.toString());
+			}
+			if (value.endsWith("/")) {
+				path.append(value, 0, value.length() - 1);
+				candidates.add(path.toString());
+				path.append('/');
+			}
+			else {
+				path.append(value);
+			}
+		}
+		candidates.add(path.toString());
+
+		ArrayList<String> result = new ArrayList<String>(candidates.size());
+		for (String candidate : candidates) {
+			if (getRegex().matcher(candidate).matches()) {
+				result.add(candidate);
+			}
+		}
+
+		return result;
 	}
 
 	/** Creates a template for substituting parameters. Parameters are represented
@@ -0,0 +1,111 @@
+package com.ryanberdeen.routes.path;
+
+/** Percent-encodes strings for use in URLs.
+ * Each encoder uses a table of the ASCII characters that may appear unescaped;
+ * everything else is escaped as UTF-8. Strings that need no escaping are
+ * appended or returned as they are, without allocating.
+ */
+public class PercentEncoder {
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	private static final String UNRESERVED = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-._~";
+
+	/** Encodes a single path segment. Slashes are escaped. */
+	public static final PercentEncoder PATH_SEGMENT = new PercentEncoder(UNRESERVED + "!$&'()*+,;=:@");
+
+	/** Encodes a path that may contain several segments. Slashes are not escaped. */
+	public static final PercentEncoder PATH = new PercentEncoder(UNRESERVED + "!$&'()*+,;=:@/");
+
+	/** Encodes a query string parameter name or value. */
+	public static final PercentEncoder QUERY_COMPONENT = new PercentEncoder(UNRESERVED + "!$'()*,;:@/?");
+
+	private final boolean[] safe = new boolean[128];
+
+	private PercentEncoder(String safeCharacters) {
+		for (int i = 0; i < safeCharacters.length(); i++) {
+			safe[safeCharacters.charAt(i)] = true;
+		}
+	}
+
+	private boolean isSafe(char c) {
+		return c < 128 && safe[c];
+	}
+
+	/** Returns the index of the first character that must be escaped, or -1 if there is none.
+	 */
+	private int indexOfUnsafe(String string) {
+		for (int i = 0, len = string.length(); i < len; i++) {
+			if (!isSafe(string.charAt(i))) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/** Encodes the string.
+	 * @return the encoded string, or the same string if nothing needed escaping
+	 */
+	public String encode(String string) {
+		int start = indexOfUnsafe(string);
+		if (start == -1) {
+			return string;
+		}
+
+		StringBuilder result = new StringBuilder(string.length() + 16);
+		result.append(string, 0, start);
+		encode(string, start, result);
+		return result.toString();
+	}
+
+	/** Appends the encoded string to the builder.
+	 */
+	public void encode(String string, StringBuilder result) {
+		int start = indexOfUnsafe(string);
+		if (start == -1) {
+			result.append(string);
+		}
+		else {
+			result.append(string, 0, start);
+			encode(string, start, result);
+		}
+	}
+
+	private void encode(String string, int start, StringBuilder result) {
+		for (int i = start, len = string.length(); i < len; i++) {
+			char c = string.charAt(i);
+			if (isSafe(c)) {
+				result.append(c);
+			}
+			else if (c < 0x80) {
+				appendEscaped(c, result);
+			}
+			else if (c < 0x800) {
+				appendEscaped(0xC0 | (c >> 6), result);
+				appendEscaped(0x80 | (c & 0x3F), result);
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(string.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, string.charAt(++i));
+				appendEscaped(0xF0 | (codePoint >> 18), result);
+				appendEscaped(0x80 | ((codePoint >> 12) & 0x3F), result);
+				appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), result);
+				appendEscaped(0x80 | (codePoint & 0x3F), result);
+			}
+			else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+				// unpaired surrogates can't be represented in UTF-8
+				appendEscaped('?', result);
+			}
+			else {
+				appendEscaped(0xE0 | (c >> 12), result);
+				appendEscaped(0x80 | ((c >> 6) & 0x3F), result);
+				appendEscaped(0x80 | (c & 0x3F), result);
+			}
+		}
+	}
+
+	private static void appendEscaped(int b, StringBuilder result) {
+		result.append('%');
+		result.append(HEX_DIGITS[(b >> 4) & 0xF]);
+		result.append(HEX_DIGITS[b & 0xF]);
+	}
+}
@@ -13,6 +13,18 @@ public class StaticSegment implements PathSegment, Cloneable {
 		this.required = required;
 	}
 
+	public String getValue() {
+		return value;
+	}
+
+	public boolean isRequired() {
+		return required;
+	}
+
+	void intern(SymbolTable symbols) {
+		value = symbols.intern(value);
+	}
+
 	public void appendRegex(StringBuilder regexBuilder) {
 		if (!required) {
 			regexBuilder.append("(?:");
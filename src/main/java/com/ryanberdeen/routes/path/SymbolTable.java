@@ -0,0 +1,32 @@
+package com.ryanberdeen.routes.path;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Canonical instances of the names and values used by a set of routes, so
+ * that equal strings are stored once. Safe for concurrent use, so that
+ * routes can be prepared concurrently.
+ */
+public class SymbolTable {
+	private ConcurrentHashMap<String, String> symbols = new ConcurrentHashMap<String, String>();
+
+	/** Returns the canonical instance of the string.
+	 */
+	public String intern(String string) {
+		if (string == null) {
+			return null;
+		}
+
+		String symbol = symbols.get(string);
+		if (symbol == null) {
+			symbol = symbols.putIfAbsent(string, string);
+			if (symbol == null) {
+				symbol = string;
+			}
+		}
+		return symbol;
+	}
+
+	public int size() {
+		return symbols.size();
+	}
+}
@@ -44,7 +44,7 @@ public abstract class AbstractUrlTag extends SimpleTagSupport implements Dynamic
 		
 		String url;
 		HttpServletRequest request = (HttpServletRequest) pageContext.getRequest();
-		HttpServletRequestMapping mapping = RouteUtils.getMapping(pageContext.getServletContext());
+		HttpServletRequestMapping mapping = RouteUtils.getMapping(request, pageContext.getServletContext());
 		
 		if (name != null) {
 			url = mapping.getPath(RouteUtils.getMatch(request), name, parameters);
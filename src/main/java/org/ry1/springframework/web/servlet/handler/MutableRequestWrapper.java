@@ -1,16 +1,14 @@
 package org.ry1.springframework.web.servlet.handler;
 
-import java.util.AbstractMap;
-import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
+import org.ry1.springframework.web.util.LayeredParameterMap;
+
 /** Wraps a request, allowing extended parameters to be added.
  * @author rberdeen
  *
@@ -19,7 +17,7 @@ public class MutableRequestWrapper extends HttpServletRequestWrapper {
 	private String method;
 	
 	private Map<String, String[]> extendedParameters;
-	private ShareableParameterMap sharableParameterMap;
+	private Map<String, String[]> parameterMap;
 	
 	public MutableRequestWrapper(HttpServletRequest request) {
 		super(request);
@@ -37,13 +35,24 @@ public class MutableRequestWrapper extends HttpServletRequestWrapper {
 		// so we can just check if extendedParemeters is null later on
 		//if (extendedParameters != null && extendedParameters.size() > 0) {
 			this.extendedParameters = extendedParameters;
+			this.parameterMap = null;
 		//}
 	}
 
+	/** Returns the extended values of the parameter, without copying them if
+	 * the extended parameters are a {@link LayeredParameterMap}.
+	 */
+	private String[] getExtendedValues(String name) {
+		if (extendedParameters instanceof LayeredParameterMap) {
+			return ((LayeredParameterMap) extendedParameters).getValues(name);
+		}
+		return extendedParameters.get(name);
+	}
+
 	@Override
 	public String getParameter(String name) {
 		if (extendedParameters != null) {
-			String[] values = extendedParameters.get(name);
+			String[] values = getExtendedValues(name);
 			if (values != null && values.length > 0) {
 				return values[0];
 			}
@@ -62,13 +71,18 @@ public class MutableRequestWrapper extends HttpServletRequestWrapper {
 		return super.getParameter(name);
 	}
 
+	/** Returns a read-only view of the extended parameters, if there are any.
+	 * The {@link org.ry1.springframework.web.util.LayeredParameterMap} created by
+	 * {@link org.ry1.springframework.web.util.ExtendedParameters} returns copies
+	 * of its value arrays.
+	 */
 	@Override
 	public Map<?, ?> getParameterMap() {
 		if (extendedParameters != null) {
-			if (sharableParameterMap == null) {
-				sharableParameterMap = new ShareableParameterMap();
+			if (parameterMap == null) {
+				parameterMap = Collections.unmodifiableMap(extendedParameters);
 			}
-			return sharableParameterMap;
+			return parameterMap;
 		}
 		else {
 			return super.getParameterMap();
@@ -102,7 +116,7 @@ public class MutableRequestWrapper extends HttpServletRequestWrapper {
 	@Override
 	public String[] getParameterValues(String name) {
 		if (extendedParameters != null) {
-			String[] result = extendedParameters.get(name);
+			String[] result = getExtendedValues(name);
 			return result != null ? result.clone() : null;
 		}
 		else {
@@ -116,103 +130,6 @@ public class MutableRequestWrapper extends HttpServletRequestWrapper {
 		return super.getParameterValues(name);
 	}
 	
-	private class ShareableParameterMap extends AbstractMap<String, String[]> {
-		@Override
-		public void clear() {
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public boolean containsKey(Object key) {
-			return extendedParameters.containsKey(key);
-		}
-
-		@Override
-		public boolean containsValue(Object value) {
-			return extendedParameters.containsValue(value);
-		}
-
-		@Override
-		public String[] get(Object key) {
-			return extendedParameters.get(key).clone();
-		}
-
-		@Override
-		public Set<String> keySet() {
-			return extendedParameters.keySet();
-		}
-
-		@Override
-		public void putAll(Map<? extends String, ? extends String[]> t) {
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public String[] remove(Object key) {
-			throw new UnsupportedOperationException();
-		}
-
-		private EntrySet entrySet = new EntrySet();
-		@Override
-		public EntrySet entrySet() {
-			return entrySet;
-		}
-		
-		private class EntrySet extends AbstractSet<Map.Entry<String, String[]>> {
-			EntrySetIterator entrySetIterator;
-			
-			@Override
-			public Iterator<Entry<String, String[]>> iterator() {
-				if (entrySetIterator == null) {
-					entrySetIterator = new EntrySetIterator();
-				}
-				return entrySetIterator;
-			}
-
-			@Override
-			public int size() {
-				return extendedParameters.size();
-			}
-			
-			@SuppressWarnings("unchecked")
-			private class EntrySetIterator implements Iterator<Entry<String, String[]>> {
-				private Iterator<Map.Entry<String, String[]>> iterator = MutableRequestWrapper.super.getParameterMap().entrySet().iterator();
-				
-				public boolean hasNext() {
-					return iterator.hasNext();
-				}
-
-				public EntrySetIteratorEntry next() {
-					return new EntrySetIteratorEntry(iterator.next());
-				}
-
-				public void remove() {
-					throw new UnsupportedOperationException();
-				}
-				
-				private class EntrySetIteratorEntry implements Map.Entry<String, String[]> {
-					private Map.Entry<String, String[]> entry;
-					
-					private EntrySetIteratorEntry(Map.Entry<String, String[]> entry) {
-						this.entry = entry;
-					}
-					
-					public String getKey() {
-						return entry.getKey();
-					}
-
-					public String[] getValue() {
-						return entry.getValue().clone();
-					}
-
-					public String[] setValue(String[] value) {
-						throw new UnsupportedOperationException();
-					}
-				}
-			}
-		}
-	}
-	
 	/** Returns the MutableRequestWrapper for the request.
 	 * Useful because the wrapper could itself be wrapped.
 	 * @param request
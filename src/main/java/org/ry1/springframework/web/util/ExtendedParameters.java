@@ -1,6 +1,5 @@
 package org.ry1.springframework.web.util;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -43,18 +42,25 @@ public class ExtendedParameters {
 				else {
 					throw new IllegalArgumentException("Invalid value type [" + valueObject.getClass() + "], only String and String[] allowed");
 				}
-				currentValues = extendedParameters.get(name);
 				
-				if (currentValues == null) {
-					currentValues = values;
+				if (extendedParameters instanceof LayeredParameterMap) {
+					// appends without copying the current values
+					((LayeredParameterMap) extendedParameters).addValues(name, values);
 				}
 				else {
-					String[] newValues = new String[values.length + currentValues.length];
-					System.arraycopy(values, 0, newValues, 0, values.length);
-					System.arraycopy(currentValues, 0, newValues, values.length, currentValues.length);
-					currentValues = newValues;
+					currentValues = extendedParameters.get(name);
+					
+					if (currentValues == null) {
+						currentValues = values;
+					}
+					else {
+						String[] newValues = new String[values.length + currentValues.length];
+						System.arraycopy(values, 0, newValues, 0, values.length);
+						System.arraycopy(currentValues, 0, newValues, values.length, currentValues.length);
+						currentValues = newValues;
+					}
+					extendedParameters.put(name, currentValues);
 				}
-				extendedParameters.put(name, currentValues);
 			}
 		}
 	}
@@ -88,8 +94,7 @@ public class ExtendedParameters {
 		if (wrapper != null) {
 			extendedParameters = wrapper.getExtendedParameters();
 			if (extendedParameters == null && create) {
-				extendedParameters = new HashMap<String, String[]>();
-				extendedParameters.putAll(request.getParameterMap());
+				extendedParameters = new LayeredParameterMap(request.getParameterMap());
 				wrapper.setExtendedParameters(extendedParameters);
 			}
 			return extendedParameters;
@@ -102,8 +107,7 @@ public class ExtendedParameters {
 	private static final Map<String, String[]> getExtendedParametersFromAttribute(HttpServletRequest request, boolean create) {
 		Map<String, String[]> extendedParameters = (Map<String, String[]>) request.getAttribute(ATTRIBUTE_NAME);
 		if (extendedParameters == null && create) {
-			extendedParameters = new HashMap<String, String[]>();
-			extendedParameters.putAll(request.getParameterMap());
+			extendedParameters = new LayeredParameterMap(request.getParameterMap());
 			request.setAttribute(ATTRIBUTE_NAME, extendedParameters);
 		}
 		return extendedParameters;
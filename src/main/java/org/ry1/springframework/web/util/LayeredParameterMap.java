@@ -0,0 +1,270 @@
+package org.ry1.springframework.web.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/** A parameter map that overlays added parameters on base parameters.
+ * The base parameters are never copied or modified. Values added with
+ * {@link #addValues(String, String[])} are stored in growable arrays, and the
+ * merged values and the merged map are built when they are first needed and
+ * reused until the next change.
+ *
+ * <p>Value arrays are copied when they are returned, and the key and entry
+ * sets are read-only, so the cached values can't be changed from outside the
+ * map.</p>
+ */
+public class LayeredParameterMap extends AbstractMap<String, String[]> {
+	private Map<String, String[]> baseParameters;
+	private HashMap<String, Values> overlay = new HashMap<String, Values>();
+
+	private HashMap<String, String[]> merged;
+
+	public LayeredParameterMap(Map<String, String[]> baseParameters) {
+		this.baseParameters = baseParameters;
+	}
+
+	/** Adds values for the parameter. The added values precede any existing values.
+	 */
+	public void addValues(String name, String[] values) {
+		Values current = overlay.get(name);
+		if (current == null) {
+			current = new Values(false);
+			overlay.put(name, current);
+		}
+		current.add(values);
+		merged = null;
+	}
+
+	/** Returns a copy of the values of the parameter.
+	 */
+	@Override
+	public String[] get(Object key) {
+		return copy(getValues(key));
+	}
+
+	/** Returns the values of the parameter without copying them. The array
+	 * must not be modified.
+	 */
+	public String[] getValues(Object key) {
+		Values values = overlay.get(key);
+		if (values != null) {
+			return values.get(key);
+		}
+		return baseParameters.get(key);
+	}
+
+	private static String[] copy(String[] values) {
+		return values != null ? values.clone() : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Values values = overlay.get(key);
+		if (values != null) {
+			return !values.isRemoved();
+		}
+		return baseParameters.containsKey(key);
+	}
+
+	/** Replaces the values of the parameter, including the base values. A
+	 * <code>null</code> value removes the parameter.
+	 */
+	@Override
+	public String[] put(String key, String[] value) {
+		if (value == null) {
+			return remove(key);
+		}
+
+		String[] previous = get(key);
+		Values values = new Values(true);
+		values.add(value);
+		overlay.put(key, values);
+		merged = null;
+		return previous;
+	}
+
+	@Override
+	public String[] remove(Object key) {
+		String[] previous = get(key);
+		if (previous != null) {
+			overlay.put((String) key, new Values(true));
+			merged = null;
+		}
+		return previous;
+	}
+
+	/** Removes every parameter, masking the base parameters.
+	 */
+	@Override
+	public void clear() {
+		overlay.clear();
+		for (String key : baseParameters.keySet()) {
+			overlay.put(key, new Values(true));
+		}
+		merged = null;
+	}
+
+	@Override
+	public int size() {
+		return overlay.isEmpty() ? baseParameters.size() : getMerged().size();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return Collections.unmodifiableSet(getCurrent().keySet());
+	}
+
+	@Override
+	public Set<Map.Entry<String, String[]>> entrySet() {
+		return new EntrySet(getCurrent());
+	}
+
+	/** Returns the map holding the current values.
+	 */
+	private Map<String, String[]> getCurrent() {
+		return overlay.isEmpty() ? baseParameters : getMerged();
+	}
+
+	private Map<String, String[]> getMerged() {
+		if (merged == null) {
+			merged = new HashMap<String, String[]>(baseParameters);
+			for (Map.Entry<String, Values> entry : overlay.entrySet()) {
+				Values values = entry.getValue();
+				if (values.isRemoved()) {
+					merged.remove(entry.getKey());
+				}
+				else {
+					merged.put(entry.getKey(), values.get(entry.getKey()));
+				}
+			}
+		}
+		return merged;
+	}
+
+	/** A read-only view of the entries of a map that copies their values.
+	 */
+	private static class EntrySet extends AbstractSet<Map.Entry<String, String[]>> {
+		private final Map<String, String[]> map;
+
+		EntrySet(Map<String, String[]> map) {
+			this.map = map;
+		}
+
+		@Override
+		public int size() {
+			return map.size();
+		}
+
+		@Override
+		public Iterator<Map.Entry<String, String[]>> iterator() {
+			final Iterator<Map.Entry<String, String[]>> iterator = map.entrySet().iterator();
+			return new Iterator<Map.Entry<String, String[]>>() {
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				public Map.Entry<String, String[]> next() {
+					return new ReadOnlyEntry(iterator.next());
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	private static class ReadOnlyEntry implements Map.Entry<String, String[]> {
+		private final Map.Entry<String, String[]> entry;
+
+		ReadOnlyEntry(Map.Entry<String, String[]> entry) {
+			this.entry = entry;
+		}
+
+		public String getKey() {
+			return entry.getKey();
+		}
+
+		public String[] getValue() {
+			return copy(entry.getValue());
+		}
+
+		public String[] setValue(String[] value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry<?, ?>)) {
+				return false;
+			}
+			Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+			// compare the values themselves rather than copies
+			Object value = entry.getValue();
+			Object thatValue = that instanceof ReadOnlyEntry ? ((ReadOnlyEntry) that).entry.getValue() : that.getValue();
+			return (getKey() == null ? that.getKey() == null : getKey().equals(that.getKey())) && (value == null ? thatValue == null : value.equals(thatValue));
+		}
+
+		@Override
+		public int hashCode() {
+			String[] value = entry.getValue();
+			return (getKey() == null ? 0 : getKey().hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+	}
+
+	/** The values added for a parameter.
+	 * Each added array is stored reversed at the end of <code>reversedValues</code>,
+	 * so reversing the whole array gives the most recently added values first.
+	 */
+	private class Values {
+		private boolean replacesBase;
+		private String[] reversedValues = new String[4];
+		private int size;
+		private String[] values;
+
+		Values(boolean replacesBase) {
+			this.replacesBase = replacesBase;
+		}
+
+		boolean isRemoved() {
+			return replacesBase && size == 0;
+		}
+
+		void add(String[] added) {
+			int required = size + added.length;
+			if (required > reversedValues.length) {
+				String[] grown = new String[Math.max(required, reversedValues.length * 2)];
+				System.arraycopy(reversedValues, 0, grown, 0, size);
+				reversedValues = grown;
+			}
+			for (int i = added.length - 1; i >= 0; i--) {
+				reversedValues[size++] = added[i];
+			}
+			values = null;
+		}
+
+		String[] get(Object name) {
+			if (isRemoved()) {
+				return null;
+			}
+
+			if (values == null) {
+				String[] baseValues = replacesBase ? null : baseParameters.get(name);
+				int baseLength = baseValues != null ? baseValues.length : 0;
+				values = new String[size + baseLength];
+				for (int i = 0; i < size; i++) {
+					values[i] = reversedValues[size - 1 - i];
+				}
+				if (baseLength > 0) {
+					System.arraycopy(baseValues, 0, values, size, baseLength);
+				}
+			}
+			return values;
+		}
+	}
+}
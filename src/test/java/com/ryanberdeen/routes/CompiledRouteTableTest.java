@@ -0,0 +1,66 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.builder.ResourceTemplate;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+public class CompiledRouteTableTest {
+	private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PROPFIND"};
+
+	private static final String[] PATHS = {
+		"", "/", "/people", "/people/", "/people/1", "/people/1/", "/people/1/edit", "/people/new",
+		"/people/1/edit/x", "/files", "/files/a/b/c", "/files/", "/about", "/about/", "/abou",
+		"/lectures/1", "/lectures/1/edit", "/lectures/", "/x/y/z", "/peoplex/1", "/home/index/1",
+		"/lectures/1.json", "/people/1.json", "/files/a.json", "/peoplex/1/archive", "/people/1/archive", "/p"
+	};
+
+	@Test
+	public void testMatchesLikeScan() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		RouteSetBuilder resources = builder.template(new ResourceTemplate()).nested();
+		RouteSetBuilder people = resources.nested();
+		people.append("/people/");
+		people.setParameterValue("controller", "people");
+		people.template("collection");
+		people.template("member");
+		builder.match("/files/*path").setParameterValue("controller", "files");
+		builder.match("/about/").setParameterValue("controller", "about");
+		builder.match("/lectures/:id").setOption("formats", "json").setParameterValue("controller", "lectures");
+		builder.match("/peoplex/:id/archive").setParameterValue("controller", "people");
+		builder.match("/people/:id/archive").setParameterValue("controller", "people");
+		builder.match("/:controller/:action/:id").setOption("methods", "get");
+		builder.match("/:controller/:id").setParameterRegex("id", "[0-9]*");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		List<Route> routes = routeSet.getRoutes();
+		CompiledRouteTable table = new CompiledRouteTable(routes.toArray(new Route[routes.size()]));
+		LinearMatchEngine referenceEngine = new LinearMatchEngine();
+		referenceEngine.prepare(routes);
+		int matches = 0;
+		for (String method : METHODS) {
+			for (String path : PATHS) {
+				String format = path.endsWith(".json") ? "json" : null;
+				RequestMatch expected = referenceEngine.match(null, method, path, format);
+				RequestMatch actual = table.match(null, method, path, format);
+				String request = method + " " + path;
+				if (expected == null) {
+					assertEquals(request, null, actual);
+				}
+				else {
+					matches++;
+					assertNotNull(request, actual);
+					assertEquals(request, expected.getRoute(), actual.getRoute());
+					assertEquals(request, expected.getParameters(), actual.getParameters());
+				}
+			}
+		}
+		assertEquals(true, matches > 10);
+	}
+}
@@ -0,0 +1,109 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RouteDefinitionLoaderTest {
+	private static final String DEFINITION = "resources {\n"
+		+ "\tresource /people/ controller=people regex:id=[0-9]+\n"
+		+ "}\n"
+		+ "match /files/*path controller=files @name=files @methods=GET\n";
+
+	private File cacheDirectory;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDirectory = File.createTempFile("routes", "");
+		cacheDirectory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = cacheDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		cacheDirectory.delete();
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		RouteDefinitionLoader loader = new RouteDefinitionLoader(cacheDirectory);
+		RouteSet built = load(loader);
+		assertEquals(1, cacheDirectory.listFiles().length);
+		RouteSet cached = load(loader);
+
+		assertEquals(built.getRoutes().size(), cached.getRoutes().size());
+		String[] paths = {"/people/", "/people/1", "/people/1/edit", "/people/x", "/files/a/b"};
+		for (String path : paths) {
+			RequestMatch expected = built.getBestMatch("GET", path);
+			RequestMatch match = cached.getBestMatch("GET", path);
+			if (expected == null) {
+				assertNull(match);
+			}
+			else {
+				assertEquals(expected.getRoute().getIndex(), match.getRoute().getIndex());
+				assertEquals(expected.getParameters(), match.getParameters());
+			}
+		}
+		assertNull(cached.getBestMatch("POST", "/files/a"));
+		assertEquals("files", cached.getNamedRoute("files").getName());
+	}
+
+	@Test
+	public void testLibraryVersion() throws Exception {
+		assertNotNull(RouteDefinitionLoader.getLibraryVersion());
+
+		// entries written by another build of the library are not used
+		load(new RouteDefinitionLoader(cacheDirectory, "1"));
+		load(new RouteDefinitionLoader(cacheDirectory, "1"));
+		assertEquals(1, cacheDirectory.listFiles().length);
+		load(new RouteDefinitionLoader(cacheDirectory, "2"));
+		assertEquals(2, cacheDirectory.listFiles().length);
+	}
+
+	@Test
+	public void testCorruptCacheEntry() throws Exception {
+		RouteDefinitionLoader loader = new RouteDefinitionLoader(cacheDirectory);
+		load(loader);
+		File entry = cacheDirectory.listFiles()[0];
+		FileOutputStream out = new FileOutputStream(entry);
+		out.write("garbage".getBytes("UTF-8"));
+		out.close();
+
+		assertEquals("1", load(loader).getBestMatch("GET", "/people/1").getParameters().get("id"));
+	}
+
+	@Test
+	public void testTemplateClassNotCached() throws Exception {
+		RouteDefinitionLoader loader = new RouteDefinitionLoader(cacheDirectory);
+		String definition = "template com.ryanberdeen.routes.builder.ResourceTemplate\n"
+			+ "match /files/*path controller=files\n";
+		for (int i = 0; i < 2; i++) {
+			RouteSet routeSet = load(loader, definition);
+			assertEquals("files", routeSet.getBestMatch("GET", "/files/a").getParameters().get("controller"));
+		}
+		assertNull(cacheDirectory.listFiles());
+	}
+
+	private static RouteSet load(RouteDefinitionLoader loader) throws Exception {
+		return load(loader, DEFINITION);
+	}
+
+	private static RouteSet load(RouteDefinitionLoader loader, String definition) throws Exception {
+		RouteSet routeSet = loader.load(new ByteArrayInputStream(definition.getBytes("UTF-8")));
+		routeSet.prepare();
+		return routeSet;
+	}
+}
@@ -0,0 +1,166 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ry1.springframework.web.servlet.handler.MutableRequestWrapper;
+import org.ry1.springframework.web.util.ExtendedParameters;
+
+import com.ryanberdeen.routes.ServletMocks.MockRequest;
+import com.ryanberdeen.routes.ServletMocks.MockResponse;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+public class RouteDispatchFilterTest {
+	private RouteSet routeSet;
+	private ServletContext servletContext;
+	private HttpServletRequest filteredRequest;
+
+	private final FilterChain chain = new FilterChain() {
+		public void doFilter(ServletRequest request, ServletResponse response) {
+			filteredRequest = (HttpServletRequest) request;
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/:controller/:action/:id");
+		routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		servletContext = ServletMocks.createServletContext(new HashMap<String, Object>());
+		RouteUtils.setMapping(servletContext, routeSet);
+	}
+
+	private RouteDispatchFilter createFilter(final String wrapRequest) throws Exception {
+		RouteDispatchFilter filter = new RouteDispatchFilter();
+		filter.init(new FilterConfig() {
+			public String getFilterName() {
+				return "routes";
+			}
+
+			public ServletContext getServletContext() {
+				return servletContext;
+			}
+
+			public String getInitParameter(String name) {
+				return name.equals("wrapRequest") ? wrapRequest : null;
+			}
+
+			public Enumeration<?> getInitParameterNames() {
+				return Collections.enumeration(Collections.singleton("wrapRequest"));
+			}
+		});
+		return filter;
+	}
+
+	private MockRequest createRequest(String servletPath, String pathInfo) {
+		MockRequest request = new MockRequest();
+		request.servletPath = servletPath;
+		request.pathInfo = pathInfo;
+		request.parameters.put("id", new String[] {"query"});
+		return request;
+	}
+
+	@Test
+	public void testDispatch() throws Exception {
+		MockRequest request = createRequest("/people", "/show/1");
+		createFilter(null).doFilter(request.create(), new MockResponse().create(), chain);
+
+		assertTrue(filteredRequest instanceof MutableRequestWrapper);
+		RequestMatch match = RouteUtils.getMatch(filteredRequest);
+		assertNotNull(match);
+		assertSame(routeSet, RouteUtils.getMapping(filteredRequest, servletContext));
+		assertEquals("people", match.getParameters().get("controller"));
+		assertTrue(RouteDispatchFilter.getMatchTime(filteredRequest) >= 0);
+
+		// matched parameters precede the request parameters
+		assertEquals("show", filteredRequest.getParameter("action"));
+		assertEquals("1", filteredRequest.getParameter("id"));
+		assertEquals(2, filteredRequest.getParameterValues("id").length);
+		assertEquals("query", filteredRequest.getParameterValues("id")[1]);
+
+		// the parameter map is read-only
+		Map<?, ?> parameterMap = filteredRequest.getParameterMap();
+		((String[]) parameterMap.get("id"))[0] = "changed";
+		assertEquals("1", filteredRequest.getParameter("id"));
+		try {
+			parameterMap.remove("id");
+			fail();
+		}
+		catch (UnsupportedOperationException e) {}
+	}
+
+	@Test
+	public void testAttributeStrategy() throws Exception {
+		MockRequest request = createRequest("/people/show/1", null);
+		createFilter("false").doFilter(request.create(), new MockResponse().create(), chain);
+
+		assertNotNull(RouteUtils.getMatch(filteredRequest));
+		assertNull(filteredRequest.getParameter("action"));
+		Map<String, String[]> parameters = ExtendedParameters.getExtendedParameters(filteredRequest, ExtendedParameters.Strategy.ATTRIBUTE, false);
+		assertEquals("show", parameters.get("action")[0]);
+		assertEquals("query", parameters.get("id")[1]);
+	}
+
+	@Test
+	public void testMatchedOnce() throws Exception {
+		MockRequest request = createRequest("/people/show/1", null);
+		RequestMatch previous = routeSet.getBestMatch("GET", "/lectures/edit/2");
+		request.attributes.put(RouteUtils.MATCH_ATTRIBUTE, previous);
+		HttpServletRequest httpRequest = request.create();
+		createFilter(null).doFilter(httpRequest, new MockResponse().create(), chain);
+
+		assertSame(httpRequest, filteredRequest);
+		assertSame(previous, RouteUtils.getMatch(filteredRequest));
+		assertEquals(-1, RouteDispatchFilter.getMatchTime(filteredRequest));
+	}
+
+	@Test
+	public void testNoMatch() throws Exception {
+		MockRequest request = createRequest("/people", null);
+		HttpServletRequest httpRequest = request.create();
+		createFilter(null).doFilter(httpRequest, new MockResponse().create(), chain);
+
+		assertSame(httpRequest, filteredRequest);
+		assertNull(RouteUtils.getMatch(filteredRequest));
+		assertSame(routeSet, request.attributes.get(RouteUtils.MAPPING_ATTRIBUTE));
+	}
+
+	@Test
+	public void testTenant() throws Exception {
+		RouteSetRegistry registry = new RouteSetRegistry(new RouteSetLoader() {
+			public RouteSet load(String tenant) throws Exception {
+				RouteSetBuilder builder = new RouteSetBuilder();
+				builder.match("/" + tenant + "/:controller");
+				return builder.createRouteSet();
+			}
+		}, Long.MAX_VALUE);
+		RouteUtils.setRegistry(servletContext, registry);
+
+		MockRequest request = createRequest("/a/people", null);
+		RouteUtils.setTenant(request.create(), "a");
+		createFilter(null).doFilter(request.create(), new MockResponse().create(), chain);
+
+		assertSame(registry.getRouteSet("a"), RouteUtils.getMapping(filteredRequest, servletContext));
+		assertEquals("people", filteredRequest.getParameter("controller"));
+	}
+}
@@ -0,0 +1,122 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ryanberdeen.routes.ServletMocks.MockRequest;
+import com.ryanberdeen.routes.ServletMocks.MockResponse;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+public class RouteJavascriptGeneratorTest {
+	private RouteSet routeSet;
+	private RouteJavascriptGenerator generator;
+
+	@Before
+	public void setUp() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/people/:id").setName("person");
+		routeSet = builder.createRouteSet();
+		routeSet.prepare();
+		generator = new RouteJavascriptGenerator();
+		generator.setMapping(routeSet);
+	}
+
+	private MockResponse generate(MockRequest request) throws Exception {
+		MockResponse response = new MockResponse();
+		generator.generate(request.create(), response.create());
+		return response;
+	}
+
+	@Test
+	public void testGenerate() throws Exception {
+		MockRequest request = new MockRequest();
+		request.contextPath = "/app";
+		MockResponse response = generate(request);
+
+		assertEquals(HttpServletResponse.SC_OK, response.status);
+		assertNull(response.headers.get("Content-Encoding"));
+		assertNotNull(response.headers.get("ETag"));
+		assertEquals(response.content.size(), response.contentLength);
+		String script = response.content.toString("UTF-8");
+		assertTrue(script, script.endsWith("{'person':'/app/people/${id}'};"));
+	}
+
+	@Test
+	public void testNotModified() throws Exception {
+		String etag = generate(new MockRequest()).headers.get("ETag");
+
+		MockRequest request = new MockRequest();
+		request.headers.put("If-None-Match", "\"other\", " + etag);
+		MockResponse response = generate(request);
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.status);
+		assertEquals(etag, response.headers.get("ETag"));
+		assertEquals(0, response.content.size());
+
+		// changing the routes changes the script
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/users/:id").setName("person");
+		routeSet.setRoutes(builder.createRouteSet().getRoutes());
+		routeSet.prepare();
+		response = generate(request);
+		assertEquals(HttpServletResponse.SC_OK, response.status);
+		assertFalse(etag.equals(response.headers.get("ETag")));
+		assertTrue(response.content.toString("UTF-8").endsWith("{'person':'/users/${id}'};"));
+	}
+
+	@Test
+	public void testGzip() throws Exception {
+		byte[] plain = generate(new MockRequest()).content.toByteArray();
+
+		MockRequest request = new MockRequest();
+		request.headers.put("Accept-Encoding", "deflate, gzip;q=0.5");
+		MockResponse response = generate(request);
+		assertEquals("gzip", response.headers.get("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.headers.get("Vary"));
+		assertTrue(response.headers.get("ETag").endsWith("-gzip\""));
+		assertArrayEquals(plain, gunzip(response.content.toByteArray()));
+
+		MockRequest conditional = new MockRequest();
+		conditional.headers.put("Accept-Encoding", "gzip");
+		conditional.headers.put("If-None-Match", response.headers.get("ETag"));
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, generate(conditional).status);
+	}
+
+	@Test
+	public void testAcceptsGzip() {
+		assertTrue(RouteJavascriptGenerator.acceptsGzip("gzip"));
+		assertTrue(RouteJavascriptGenerator.acceptsGzip("deflate, GZIP ; Q=0.1"));
+		assertTrue(RouteJavascriptGenerator.acceptsGzip("*"));
+		assertTrue(RouteJavascriptGenerator.acceptsGzip("x-gzip;q=1.0"));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip(null));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip("identity"));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip("gzip;q=0"));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip("gzip;q=0.000, *"));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip("*;q=0"));
+		assertFalse(RouteJavascriptGenerator.acceptsGzip("gzip;q=invalid"));
+	}
+
+	private static byte[] gunzip(byte[] content) throws Exception {
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(content));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int len;
+		while ((len = in.read(buffer)) != -1) {
+			out.write(buffer, 0, len);
+		}
+		return out.toByteArray();
+	}
+}
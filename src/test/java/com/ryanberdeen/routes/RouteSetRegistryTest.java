@@ -0,0 +1,115 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+
+public class RouteSetRegistryTest {
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final RouteSetLoader loader = new RouteSetLoader() {
+		public RouteSet load(String tenant) throws Exception {
+			loads.incrementAndGet();
+			if (tenant.equals("broken")) {
+				throw new Exception("broken");
+			}
+			RouteSetBuilder builder = new RouteSetBuilder();
+			builder.match("/" + tenant + "/:controller/:action/:id");
+			return builder.createRouteSet();
+		}
+	};
+
+	@Test
+	public void testSingleLoad() throws Exception {
+		final RouteSetRegistry registry = new RouteSetRegistry(loader, Long.MAX_VALUE);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<RouteSet> routeSets = new ArrayList<RouteSet>();
+
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					RouteSet routeSet = registry.getRouteSet("a");
+					synchronized (routeSets) {
+						routeSets.add(routeSet);
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(1, loads.get());
+		assertEquals(8, routeSets.size());
+		for (RouteSet routeSet : routeSets) {
+			assertSame(routeSets.get(0), routeSet);
+		}
+		assertEquals("1", registry.getRouteSet("a").getBestMatch("GET", "/a/x/y/1").getParameters().get("id"));
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		RouteSetRegistry registry = new RouteSetRegistry(loader, Long.MAX_VALUE);
+		RouteSet a = registry.getRouteSet("a");
+		long size = registry.getRetainedSize();
+		registry.setMemoryBudget(size * 2);
+
+		// access times have a resolution of about a millisecond
+		registry.getRouteSet("b");
+		Thread.sleep(2);
+		registry.getRouteSet("a");
+		Thread.sleep(2);
+		registry.getRouteSet("c");
+
+		// b was used least recently
+		assertEquals(2, registry.getLoadedCount());
+		assertEquals(1, registry.getEvictionCount());
+		assertEquals(size * 2, registry.getRetainedSize());
+		assertSame(a, registry.getRouteSet("a"));
+		assertEquals(3, loads.get());
+
+		registry.getRouteSet("b");
+		assertEquals(4, loads.get());
+
+		registry.invalidate("a");
+		assertNotSame(a, registry.getRouteSet("a"));
+	}
+
+	@Test
+	public void testFailedLoad() {
+		RouteSetRegistry registry = new RouteSetRegistry(loader, Long.MAX_VALUE);
+		for (int i = 0; i < 2; i++) {
+			try {
+				registry.getRouteSet("broken");
+				fail();
+			}
+			catch (IllegalStateException e) {
+				assertEquals("broken", e.getCause().getMessage());
+			}
+		}
+		assertEquals(2, loads.get());
+		assertEquals(0, registry.getLoadedCount());
+		assertEquals(0, registry.getRetainedSize());
+	}
+}
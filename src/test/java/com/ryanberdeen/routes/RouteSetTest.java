@@ -0,0 +1,391 @@
+package com.ryanberdeen.routes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ryanberdeen.routes.builder.ResourceTemplate;
+import com.ryanberdeen.routes.builder.RouteBuilderUtils;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+import com.ryanberdeen.routes.metrics.RouteMetrics;
+import com.ryanberdeen.routes.path.ParameterType;
+
+public class RouteSetTest {
+	private RouteSet routeSet;
+
+	@Before
+	public void setUp() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		RouteSetBuilder lectures = builder.template(new ResourceTemplate()).nested();
+		lectures.append("/lectures/");
+		lectures.setParameterValue("controller", "lecture");
+		lectures.template("member");
+		routeSet = builder.createRouteSet();
+		routeSet.prepare();
+	}
+
+	@Test
+	public void testGetPaths() {
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("controller", "lecture");
+		parameters.put("action", "edit");
+
+		final List<String> paths = new ArrayList<String>();
+		routeSet.getPaths(parameters, Route.NO_PARAMETER_VALUES, "id", Arrays.asList("1", "2", "3"), new PathCallback() {
+			public void handlePath(Object value, String path) {
+				paths.add(path);
+			}
+		});
+		assertEquals(Arrays.asList("/lectures/1/edit", "/lectures/2/edit", "/lectures/3/edit"), paths);
+	}
+
+	@Test
+	public void testAppendPaths() throws Exception {
+		StringBuilder out = new StringBuilder();
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("controller", "lecture");
+		parameters.put("action", "edit");
+		routeSet.appendPaths(out, ",", parameters, Route.NO_PARAMETER_VALUES, "id", Arrays.asList(1, 2));
+		assertEquals("/lectures/1/edit,/lectures/2/edit", out.toString());
+
+		out.setLength(0);
+		routeSet.appendPaths(out, ",", parameters, Route.NO_PARAMETER_VALUES, "id", Collections.emptyList());
+		assertEquals("", out.toString());
+	}
+
+	@Test
+	public void testContextParameters() {
+		RequestMatch match = routeSet.getBestMatch("GET", "/lectures/1/edit");
+		assertEquals(Collections.singletonMap("controller", "lecture"), match.getContextParameters());
+		assertEquals("lecture", match.getContextParameters().get("controller"));
+		assertNull(match.getContextParameters().get("action"));
+	}
+
+	@Test
+	public void testWriteJsonManifest() throws Exception {
+		RouteSet routeSet = new RouteSet();
+		Route route = RouteBuilderUtils.buildRoute("/lectures/:id", Collections.singletonMap("controller", "lecture"));
+		route.setName("lecture");
+		routeSet.setRoutes(Collections.singletonList(route));
+		routeSet.prepare();
+
+		StringWriter out = new StringWriter();
+		RouteManifestWriter.writeJson(routeSet, out);
+		assertEquals("{\"routes\":[{\"name\":\"lecture\",\"segments\":[{\"static\":\"/lectures/\",\"required\":true},"
+				+ "{\"parameter\":\"id\",\"required\":true,\"slashes\":false,\"regex\":\"[^/]+\"}],"
+				+ "\"parameters\":{\"controller\":\"lecture\"},\"defaults\":{}}]}", out.toString());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		RouteMetrics metrics = new RouteMetrics(1);
+		routeSet.setMetrics(metrics);
+		RequestMatch match = routeSet.getBestMatch("GET", "/lectures/1/edit");
+		routeSet.getBestMatch("GET", "/lectures/1/edit");
+		routeSet.getBestMatch("GET", "/missing");
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("controller", "lecture");
+		parameters.put("id", "1");
+		routeSet.getPath(parameters, Route.NO_PARAMETER_VALUES);
+
+		assertEquals(2, metrics.getMatchCount());
+		assertEquals(1, metrics.getMissCount());
+		assertEquals(1, metrics.getGenerationCount());
+		assertEquals(2, metrics.getMatchLatency(match.getRoute().getIndex()).getCount());
+	}
+
+	@Test
+	public void testAdaptiveOrdering() throws Exception {
+		Route cold = RouteBuilderUtils.buildRoute("/cold", Collections.singletonMap("controller", "cold"));
+		Route any = RouteBuilderUtils.buildRoute("/:controller/:id", Route.NO_PARAMETER_VALUES);
+		Route hot = RouteBuilderUtils.buildRoute("/hot/:id", Collections.singletonMap("controller", "hot"));
+		assertTrue(RouteOverlap.isDisjoint(cold, hot));
+		assertFalse(RouteOverlap.isDisjoint(any, hot));
+
+		RouteSet routeSet = new RouteSet();
+		routeSet.setRoutes(Arrays.asList(cold, hot, any));
+		routeSet.setMetrics(new RouteMetrics());
+		routeSet.setAdaptiveOrdering(true);
+		routeSet.prepare();
+
+		for (int i = 0; i < 10; i++) {
+			routeSet.getBestMatch("GET", "/hot/" + i);
+			routeSet.getBestMatch("GET", "/any/" + i);
+			routeSet.getBestMatch("GET", "/any/" + i);
+		}
+		routeSet.reorder();
+
+		// the hot route moves ahead of the disjoint cold route
+		List<Route> scanOrder = Arrays.asList(routeSet.getScanOrder());
+		assertTrue(scanOrder.indexOf(hot) < scanOrder.indexOf(cold));
+
+		// the hotter route stays after the earlier route it overlaps
+		assertTrue(scanOrder.indexOf(hot) < scanOrder.indexOf(any));
+		assertEquals(hot, routeSet.getBestMatch("GET", "/hot/1").getRoute());
+		assertEquals(cold, routeSet.getBestMatch("GET", "/cold").getRoute());
+
+		// a route that accepts formats overlaps a route for its path with a suffix
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/a").setOption("formats", "json").setOption("methods", "get");
+		builder.match("/a.json");
+		routeSet = builder.createRouteSet();
+		routeSet.setMetrics(new RouteMetrics(1));
+		routeSet.setAdaptiveOrdering(true);
+		routeSet.prepare();
+		assertFalse(RouteOverlap.isDisjoint(routeSet.getRoutes().get(0), routeSet.getRoutes().get(1)));
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(1, routeSet.getBestMatch("POST", "/a.json").getRoute().getIndex());
+		}
+		routeSet.reorder();
+		assertEquals(0, routeSet.getBestMatch("GET", "/a.json").getRoute().getIndex());
+	}
+
+	@Test
+	public void testWarmup() {
+		RouteMetrics metrics = new RouteMetrics();
+		routeSet.setMetrics(metrics);
+
+		final List<Integer> progress = new ArrayList<Integer>();
+		int iterations = routeSet.warmup(3, 0, TimeUnit.SECONDS, new WarmupCallback() {
+			public void handleProgress(int iteration, long elapsedNanos) {
+				progress.add(iteration);
+			}
+		});
+		assertEquals(3, iterations);
+		assertEquals(Arrays.asList(1, 2, 3), progress);
+		assertEquals(0, metrics.getMatchCount());
+
+		for (WarmupSample sample : WarmupSample.createSamples(routeSet.getRoutes())) {
+			assertTrue(sample.getPath().startsWith("/lectures/"));
+		}
+	}
+
+	@Test
+	public void testShadowMatchEngine() throws Exception {
+		ShadowMatchEngine verified = new ShadowMatchEngine(new CompiledMatchEngine(), 1);
+		routeSet.setMatchEngine(verified);
+		routeSet.prepare();
+		assertEquals("1", routeSet.getBestMatch("GET", "/lectures/1/edit").getParameters().get("id"));
+		assertNull(routeSet.getBestMatch("GET", "/missing"));
+		assertEquals(2, verified.getVerificationCount());
+		assertEquals(0, verified.getDivergenceCount());
+
+		ShadowMatchEngine diverging = new ShadowMatchEngine(new MatchEngine() {
+			public void prepare(List<Route> routes) {}
+
+			public RequestMatch match(String host, String method, String path, String format) {
+				return null;
+			}
+		}, 2);
+		routeSet.setMatchEngine(diverging);
+		routeSet.prepare();
+		for (int i = 0; i < 4; i++) {
+			assertNull(routeSet.getBestMatch("GET", "/lectures/1/edit"));
+		}
+		assertEquals(2, diverging.getVerificationCount());
+		assertEquals(2, diverging.getDivergenceCount());
+	}
+
+	@Test
+	public void testFootprint() {
+		RouteFootprint footprint = routeSet.getFootprint();
+		assertEquals(routeSet.getRoutes().size(), footprint.getRouteCount());
+		assertTrue(footprint.getCompactBytes() < footprint.getMapBasedBytes());
+
+		// equal names are shared between routes
+		Route first = routeSet.getRoutes().get(0);
+		Route second = routeSet.getRoutes().get(1);
+		assertTrue(first.getStaticParameterValues().get("controller") == second.getStaticParameterValues().get("controller"));
+
+		for (Route route : routeSet.getRoutes()) {
+			if (route.getMethods() != null) {
+				for (String method : route.getMethods()) {
+					assertTrue(route.allowsMethod(method));
+				}
+				assertFalse(route.allowsMethod("PROPFIND"));
+			}
+		}
+	}
+
+	@Test
+	public void testHostDispatch() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/admin").setOption("host", "admin.example.com").setParameterValue("controller", "admin");
+		builder.match("/:controller").setOption("host", ":account.example.com");
+		builder.match("/:controller").setOption("host", "*.example.org");
+		builder.match("/:controller").setParameterValue("site", "default");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		assertEquals("admin", routeSet.getBestMatch("Admin.Example.com:8080", "GET", "/admin").getParameters().get("controller"));
+
+		RequestMatch match = routeSet.getBestMatch("acme.example.com", "GET", "/people");
+		assertEquals("acme", match.getParameters().get("account"));
+		assertEquals("people", match.getParameters().get("controller"));
+		assertEquals("admin", routeSet.getBestMatch("admin.example.com", "GET", "/people").getParameters().get("account"));
+
+		assertEquals(2, routeSet.getBestMatch("a.b.example.org", "GET", "/people").getRoute().getIndex());
+		assertEquals(3, routeSet.getBestMatch("example.org", "GET", "/people").getRoute().getIndex());
+		assertEquals(3, routeSet.getBestMatch("example.com", "GET", "/people").getRoute().getIndex());
+		assertEquals(3, routeSet.getBestMatch("GET", "/people").getRoute().getIndex());
+		assertEquals(3, routeSet.getBestMatch("GET", "/admin").getRoute().getIndex());
+	}
+
+	@Test
+	public void testHostDispatchWithShadowMatchEngine() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/admin").setOption("host", "admin.example.com").setParameterValue("controller", "admin");
+		builder.match("/:controller").setOption("host", ":account.example.com");
+		builder.match("/:controller").setParameterValue("site", "default");
+		RouteSet routeSet = builder.createRouteSet();
+		ShadowMatchEngine engine = new ShadowMatchEngine(new CompiledMatchEngine(), 1);
+		routeSet.setMatchEngine(engine);
+		routeSet.prepare();
+
+		assertEquals(0, routeSet.getBestMatch("Admin.Example.com", "GET", "/admin").getRoute().getIndex());
+		assertEquals("acme", routeSet.getBestMatch("acme.example.com", "GET", "/people").getParameters().get("account"));
+		assertEquals(2, routeSet.getBestMatch("example.org", "GET", "/people").getRoute().getIndex());
+		assertEquals(2, routeSet.getBestMatch("GET", "/admin").getRoute().getIndex());
+
+		// requests with a host are matched, and verified, by the engine
+		assertEquals(4, engine.getVerificationCount());
+		assertEquals(0, engine.getDivergenceCount());
+
+		assertFalse(RouteOverlap.isDisjoint(routeSet.getRoutes().get(0), routeSet.getRoutes().get(2)));
+		assertTrue(RouteOverlap.areHostsDisjoint(HostPattern.parse("admin.example.com"), HostPattern.parse("*.example.org")));
+		assertTrue(RouteOverlap.areHostsDisjoint(HostPattern.parse("*.example.com"), HostPattern.parse("example.com")));
+		assertFalse(RouteOverlap.areHostsDisjoint(HostPattern.parse("*.example.com"), HostPattern.parse(":sub.a.example.com")));
+	}
+
+	@Test
+	public void testWarmupWithHostPatterns() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/admin").setOption("host", "admin.example.com").setParameterValue("controller", "admin");
+		builder.match("/:controller").setOption("host", ":account.example.com").setParameterValue("account", "Acme");
+		builder.match("/:controller").setOption("host", "*.example.org");
+		RouteSet routeSet = builder.createRouteSet();
+		ShadowMatchEngine engine = new ShadowMatchEngine(new CompiledMatchEngine(), 1);
+		routeSet.setMatchEngine(engine);
+		routeSet.prepare();
+
+		List<WarmupSample> samples = WarmupSample.createSamples(routeSet.getRoutes());
+		assertEquals("admin.example.com", samples.get(0).getHost());
+		assertEquals("acme.example.com", samples.get(1).getHost());
+		assertEquals("www.example.org", samples.get(2).getHost());
+		for (WarmupSample sample : samples) {
+			assertNotNull(sample.getPath());
+		}
+
+		// warmup requests are not verified
+		assertEquals(1, routeSet.warmup(1, 0, TimeUnit.SECONDS, null));
+		assertEquals(0, engine.getVerificationCount());
+	}
+
+	@Test
+	public void testFormats() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/files/*path").setParameterValue("controller", "files");
+		builder.match("/:controller/:id").setOption("formats", "json,xml");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		RequestMatch match = routeSet.getBestMatch("GET", "/people/1.json");
+		assertEquals("1", match.getParameters().get("id"));
+		assertEquals("json", match.getParameters().get("format"));
+		assertNull(routeSet.getBestMatch("GET", "/people/1").getParameters().get("format"));
+		assertEquals("1.txt", routeSet.getBestMatch("GET", "/people/1.txt").getParameters().get("id"));
+
+		// the files route does not accept formats
+		match = routeSet.getBestMatch("GET", "/files/a.json");
+		assertEquals("a.json", match.getParameters().get("path"));
+		assertNull(match.getParameters().get("format"));
+
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("controller", "people");
+		parameters.put("id", "1");
+		assertEquals("/people/1", routeSet.getPath(parameters, Route.NO_PARAMETER_VALUES));
+		parameters.put("format", "xml");
+		assertEquals("/people/1.xml", routeSet.getPath(parameters, Route.NO_PARAMETER_VALUES));
+
+		// an earlier route that matches the path without the suffix but does not accept the format is skipped
+		builder = new RouteSetBuilder();
+		builder.match("/a/:id").setParameterRegex("id", "[0-9]+");
+		builder.match("/a/:id").setOption("formats", "json");
+		routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		match = routeSet.getBestMatch("GET", "/a/1.json");
+		assertEquals(1, match.getRoute().getIndex());
+		assertEquals("1", match.getParameters().get("id"));
+		assertEquals("json", match.getParameters().get("format"));
+		assertEquals(0, routeSet.getBestMatch("GET", "/a/1").getRoute().getIndex());
+	}
+
+	@Test
+	public void testParameterTypes() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/people/:id").setParameterType("id", ParameterType.LONG);
+		builder.match("/people/:slug").setParameterType("slug", ParameterType.SLUG);
+		RouteSet routeSet = builder.createRouteSet();
+
+		// types survive the binary manifest
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RouteManifestWriter.writeBinary(routeSet, out);
+		routeSet.setRoutes(RouteManifestReader.readBinary(new ByteArrayInputStream(out.toByteArray())));
+		routeSet.prepare();
+
+		RequestMatch match = routeSet.getBestMatch("GET", "/people/12345678901");
+		assertEquals(12345678901L, match.getLong("id"));
+		assertEquals("12345678901", match.getParameters().get("id"));
+
+		match = routeSet.getBestMatch("GET", "/people/jane-doe");
+		assertEquals(1, match.getRoute().getIndex());
+		try {
+			match.getLong("slug");
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+			// slugs are not numbers
+		}
+		assertNull(routeSet.getBestMatch("GET", "/people/Jane"));
+	}
+
+	@Test
+	public void testTypedDefaults() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/p/:page").setParameterType("page", ParameterType.LONG).setParameterValue("page", "1");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		RequestMatch match = routeSet.getBestMatch("GET", "/p");
+		assertEquals("1", match.getParameters().get("page"));
+		assertEquals(1, match.getLong("page"));
+		assertEquals(3, routeSet.getBestMatch("GET", "/p/3").getLong("page"));
+
+		// defaults must have the parameter's type
+		builder = new RouteSetBuilder();
+		builder.match("/p/:page").setParameterType("page", ParameterType.LONG).setParameterValue("page", "first");
+		try {
+			builder.createRouteSet().prepare();
+			fail();
+		}
+		catch (IllegalArgumentException e) {}
+	}
+}
@@ -85,4 +85,21 @@ public class RouteTest {
 		int match = route.match(Collections.singletonMap("controller", (Object) "lecture"), Route.NO_PARAMETER_VALUES);
 		assertEquals(1, match);
 	}
+
+	@Test
+	public void testBuildPathQueryString() {
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("controller", "instructorLecture");
+		parameters.put("id", "1");
+		parameters.put("action", "edit");
+		parameters.put("tag", new String[] {"a b", "c&d"});
+		assertEquals("/instructor/lectures/1/edit?tag=a%20b&tag=c%26d", simple.buildPath(parameters, Route.NO_PARAMETER_VALUES));
+	}
+
+	@Test
+	public void testBuildPathEncoding() {
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("id", "a/b\u00e9");
+		assertEquals("/instructor/lectures/a%2Fb%C3%A9/", simple.buildPath(parameters, Route.NO_PARAMETER_VALUES));
+	}
 }
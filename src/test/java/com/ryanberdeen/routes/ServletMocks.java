@@ -0,0 +1,163 @@
+package com.ryanberdeen.routes;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/** Minimal servlet objects for tests, implemented with dynamic proxies.
+ * Unsupported methods throw {@link UnsupportedOperationException}.
+ */
+class ServletMocks {
+	private static Object createProxy(Class<?> type, InvocationHandler handler) {
+		return Proxy.newProxyInstance(ServletMocks.class.getClassLoader(), new Class<?>[] {type}, handler);
+	}
+
+	/** Handles the methods of {@link Object} for a proxy.
+	 */
+	private static Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+		String name = method.getName();
+		if (name.equals("equals")) {
+			return proxy == args[0];
+		}
+		else if (name.equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		}
+		else if (name.equals("toString")) {
+			return method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+		}
+		throw new UnsupportedOperationException(name);
+	}
+
+	static ServletContext createServletContext(final Map<String, Object> attributes) {
+		return (ServletContext) createProxy(ServletContext.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("getAttribute")) {
+					return attributes.get(args[0]);
+				}
+				else if (name.equals("setAttribute")) {
+					attributes.put((String) args[0], args[1]);
+					return null;
+				}
+				return invokeObjectMethod(proxy, method, args);
+			}
+		});
+	}
+
+	static class MockRequest implements InvocationHandler {
+		String method = "GET";
+		String serverName = "localhost";
+		String contextPath = "";
+		String servletPath = "";
+		String pathInfo;
+		final Map<String, String> headers = new HashMap<String, String>();
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		final Map<String, String[]> parameters = new HashMap<String, String[]>();
+
+		HttpServletRequest create() {
+			return (HttpServletRequest) createProxy(HttpServletRequest.class, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("getMethod")) {
+				return this.method;
+			}
+			else if (name.equals("getServerName")) {
+				return serverName;
+			}
+			else if (name.equals("getContextPath")) {
+				return contextPath;
+			}
+			else if (name.equals("getServletPath")) {
+				return servletPath;
+			}
+			else if (name.equals("getPathInfo")) {
+				return pathInfo;
+			}
+			else if (name.equals("getHeader")) {
+				return headers.get(args[0]);
+			}
+			else if (name.equals("getAttribute")) {
+				return attributes.get(args[0]);
+			}
+			else if (name.equals("setAttribute")) {
+				if (args[1] == null) {
+					attributes.remove(args[0]);
+				}
+				else {
+					attributes.put((String) args[0], args[1]);
+				}
+				return null;
+			}
+			else if (name.equals("removeAttribute")) {
+				attributes.remove(args[0]);
+				return null;
+			}
+			else if (name.equals("getParameterMap")) {
+				return Collections.unmodifiableMap(parameters);
+			}
+			else if (name.equals("getParameterValues")) {
+				return parameters.get(args[0]);
+			}
+			else if (name.equals("getParameter")) {
+				String[] values = parameters.get(args[0]);
+				return values != null ? values[0] : null;
+			}
+			else if (name.equals("getParameterNames")) {
+				return Collections.enumeration(parameters.keySet());
+			}
+			return invokeObjectMethod(proxy, method, args);
+		}
+	}
+
+	static class MockResponse implements InvocationHandler {
+		int status = HttpServletResponse.SC_OK;
+		String contentType;
+		int contentLength = -1;
+		final Map<String, String> headers = new HashMap<String, String>();
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+		HttpServletResponse create() {
+			return (HttpServletResponse) createProxy(HttpServletResponse.class, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("setStatus")) {
+				status = (Integer) args[0];
+				return null;
+			}
+			else if (name.equals("setHeader")) {
+				headers.put((String) args[0], (String) args[1]);
+				return null;
+			}
+			else if (name.equals("setContentType")) {
+				contentType = (String) args[0];
+				return null;
+			}
+			else if (name.equals("setContentLength")) {
+				contentLength = (Integer) args[0];
+				return null;
+			}
+			else if (name.equals("getOutputStream")) {
+				return new ServletOutputStream() {
+					@Override
+					public void write(int b) {
+						content.write(b);
+					}
+				};
+			}
+			return invokeObjectMethod(proxy, method, args);
+		}
+	}
+}
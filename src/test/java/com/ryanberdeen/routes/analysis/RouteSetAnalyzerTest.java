@@ -0,0 +1,97 @@
+package com.ryanberdeen.routes.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteSet;
+import com.ryanberdeen.routes.builder.RouteBuilderUtils;
+import com.ryanberdeen.routes.builder.RouteSetBuilder;
+import com.ryanberdeen.routes.path.ParameterType;
+
+public class RouteSetAnalyzerTest {
+	@Test
+	public void testAnalyze() throws Exception {
+		Route any = RouteBuilderUtils.buildRoute("/:controller/:id", Route.NO_PARAMETER_VALUES);
+		Route shadowed = RouteBuilderUtils.buildRoute("/:controller/:id", Route.NO_PARAMETER_VALUES);
+		Route staticShadowed = RouteBuilderUtils.buildRoute("/lectures/1", Route.NO_PARAMETER_VALUES);
+		Route reachable = RouteBuilderUtils.buildRoute("/lectures", Collections.singletonMap("controller", "lecture"));
+
+		RouteSet routeSet = new RouteSet();
+		routeSet.setRoutes(Arrays.asList(any, shadowed, staticShadowed, reachable));
+		routeSet.prepare();
+
+		RouteSetAnalysis analysis = RouteSetAnalyzer.analyze(routeSet);
+		assertEquals(2, analysis.getUnreachableRoutes().size());
+		assertEquals(shadowed, analysis.getUnreachableRoutes().get(0).getRoute());
+		assertEquals(any, analysis.getUnreachableRoutes().get(0).getShadowingRoute());
+		assertEquals(staticShadowed, analysis.getUnreachableRoutes().get(1).getRoute());
+
+		assertEquals(1, analysis.getUnreachableForGeneration().size());
+		assertEquals(shadowed, analysis.getUnreachableForGeneration().get(0).getRoute());
+
+		assertEquals(3, analysis.getOverlaps().size());
+		assertEquals(3, analysis.getCosts().get(3).getPrecedingRegexTests());
+	}
+
+	@Test
+	public void testProblemKeys() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/lectures/:id").setParameterValue("controller", "lectures");
+		builder.match("/lectures/:id").setParameterValue("controller", "lectures").setOption("methods", "get,post");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+		List<String> keys = RouteSetAnalyzer.analyze(routeSet).getProblemKeys();
+		assertTrue(keys.contains("unreachable [GET, POST] /lectures/${id} {controller=lectures}"));
+
+		// inserting a route does not change the keys of later routes
+		ArrayList<Route> routes = new ArrayList<Route>(routeSet.getRoutes());
+		routes.add(0, RouteBuilderUtils.buildRoute("/about", Route.NO_PARAMETER_VALUES));
+		routeSet.setRoutes(routes);
+		routeSet.prepare();
+		assertEquals(keys, RouteSetAnalyzer.analyze(routeSet).getProblemKeys());
+	}
+
+	@Test
+	public void testTypedParameters() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/items/:id").setParameterType("id", ParameterType.LONG);
+		builder.match("/items/99999999999999999999");
+		builder.match("/items/:id");
+		builder.match("/items/:id").setParameterType("id", ParameterType.LONG);
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		// a long overflows, so only the route with the same type is shadowed
+		RouteSetAnalysis analysis = RouteSetAnalyzer.analyze(routeSet);
+		assertEquals(1, analysis.getUnreachableRoutes().size());
+		assertEquals(routeSet.getRoutes().get(3), analysis.getUnreachableRoutes().get(0).getRoute());
+	}
+
+	@Test
+	public void testHostPatterns() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/x").setOption("host", "h.example.com");
+		builder.match("/x");
+		builder.match("/y").setOption("host", "*.example.com");
+		builder.match("/y").setOption("host", "a.example.com");
+		builder.match("/y").setOption("host", ":sub.a.example.com");
+		builder.match("/y").setOption("host", "example.com");
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+
+		// a route for a host does not shadow routes for other hosts
+		RouteSetAnalysis analysis = RouteSetAnalyzer.analyze(routeSet);
+		assertEquals(2, analysis.getUnreachableRoutes().size());
+		assertEquals(routeSet.getRoutes().get(3), analysis.getUnreachableRoutes().get(0).getRoute());
+		assertEquals(routeSet.getRoutes().get(4), analysis.getUnreachableRoutes().get(1).getRoute());
+		assertEquals(3, analysis.getOverlaps().size());
+	}
+}
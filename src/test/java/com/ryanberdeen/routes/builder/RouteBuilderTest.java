@@ -0,0 +1,38 @@
+package com.ryanberdeen.routes.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.Route;
+
+public class RouteBuilderTest {
+	@Test
+	public void testCopiesAreIndependent() {
+		RouteBuilder original = new RouteBuilder();
+		original.append("/lectures/:id");
+		original.setParameterValue("controller", "lecture");
+
+		RouteBuilder copy = new RouteBuilder(original);
+		copy.append("/edit");
+		copy.setParameterValue("action", "edit");
+		original.setParameterValue("format", "html");
+
+		Route route = copy.createRoute();
+		route.prepare();
+		assertEquals("/lectures/${id}/edit", route.getPathPattern().getStringTemplate());
+		assertNull(route.getStaticParameterValues().get("format"));
+
+		Route originalRoute = original.createRoute();
+		assertEquals("/lectures/${id}", originalRoute.getPathPattern().getStringTemplate());
+		assertNull(originalRoute.getStaticParameterValues().get("action"));
+
+		// routes keep the values they were created with
+		original.setParameterValue("controller", "course");
+		assertEquals("lecture", originalRoute.getStaticParameterValues().get("controller"));
+		assertEquals(Collections.singleton("id"), originalRoute.getPathPattern().getParameterNames());
+	}
+}
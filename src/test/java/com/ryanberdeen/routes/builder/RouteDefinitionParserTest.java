@@ -0,0 +1,78 @@
+package com.ryanberdeen.routes.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.RequestMatch;
+import com.ryanberdeen.routes.RouteSet;
+
+public class RouteDefinitionParserTest {
+	private static final String DEFINITION = "# routes\n"
+		+ "match / controller=home @name=home\n"
+		+ "resources {\n"
+		+ "\tresource /people/ controller=people regex:id=[0-9]+\n"
+		+ "}\n"
+		+ "scope /admin/ controller=admin {\n"
+		+ "\tmatch \"search term\"/:q action=search @methods=GET\n"
+		+ "}\n";
+
+	@Test
+	public void testParse() throws Exception {
+		RouteSet routeSet = parse(DEFINITION);
+
+		assertEquals("home", routeSet.getBestMatch("GET", "/").getRoute().getName());
+
+		RequestMatch match = routeSet.getBestMatch("GET", "/people/1/edit");
+		assertEquals("people", match.getParameters().get("controller"));
+		assertEquals("edit", match.getParameters().get("action"));
+		assertEquals("1", match.getParameters().get("id"));
+		assertEquals("index", routeSet.getBestMatch("GET", "/people/").getParameters().get("action"));
+		assertNull(routeSet.getBestMatch("GET", "/people/x/edit"));
+
+		match = routeSet.getBestMatch("GET", "/admin/search term/routes");
+		assertEquals("search", match.getParameters().get("action"));
+		assertEquals("routes", match.getParameters().get("q"));
+		assertNull(routeSet.getBestMatch("POST", "/admin/search term/routes"));
+
+		HashMap<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("id", "1");
+		parameters.put("action", "edit");
+		assertEquals("/people/1/edit", routeSet.getPath(parameters, Collections.singletonMap("controller", "people")));
+	}
+
+	@Test
+	public void testErrors() throws Exception {
+		assertError("scope /a/ {\nmatch b\n", "line 3: missing }");
+		assertError("}\n", "line 1: unexpected }");
+		assertError("match\n", "line 1: match requires a pattern");
+		assertError("resource /people/\n", "line 1: No template named collection");
+		assertError("match /:\n", "line 1: Invalid pattern: expecting name, found end of pattern");
+		assertError("match /a\\\n# comment\n", "line 1: dangling escape");
+		assertError("match /a\\", "line 1: dangling escape");
+	}
+
+	private static RouteSet parse(String definition) throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		RouteDefinitionParser.parse(new StringReader(definition), builder);
+		RouteSet routeSet = builder.createRouteSet();
+		routeSet.prepare();
+		return routeSet;
+	}
+
+	private static void assertError(String definition, String message) throws Exception {
+		try {
+			parse(definition);
+			fail();
+		}
+		catch (IllegalArgumentException e) {
+			assertEquals("Invalid route definition at " + message, e.getMessage());
+		}
+	}
+}
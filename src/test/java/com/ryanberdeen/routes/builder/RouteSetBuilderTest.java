@@ -0,0 +1,50 @@
+package com.ryanberdeen.routes.builder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.ryanberdeen.routes.Route;
+import com.ryanberdeen.routes.RouteSet;
+
+public class RouteSetBuilderTest {
+	@Test
+	public void testCreateRouteSetInParallel() throws Exception {
+		RouteSetBuilder builder = new RouteSetBuilder();
+		builder.match("/");
+		RouteSetBuilder resources = builder.template(new ResourceTemplate()).nested();
+		for (int i = 0; i < 20; i++) {
+			RouteSetBuilder resource = resources.nested();
+			resource.append("/resource" + i + "/");
+			resource.setParameterValue("controller", "resource" + i);
+			resource.template("collection");
+			resource.template("member");
+		}
+		builder.match("/:controller/:action");
+
+		RouteSet expectedRouteSet = builder.createRouteSet();
+		expectedRouteSet.prepare();
+		List<Route> expected = expectedRouteSet.getRoutes();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			RouteSet routeSet = builder.createRouteSet(executor);
+			routeSet.prepare(executor);
+			List<Route> routes = routeSet.getRoutes();
+			assertEquals(expected.size(), routes.size());
+			for (int i = 0; i < routes.size(); i++) {
+				assertEquals(i, routes.get(i).getIndex());
+				assertEquals(expected.get(i).getPathPattern().getStringTemplate(), routes.get(i).getPathPattern().getStringTemplate());
+				assertEquals(expected.get(i).getStaticParameterValues(), routes.get(i).getStaticParameterValues());
+				assertEquals(expected.get(i).getRequiredStaticParameterValues(), routes.get(i).getRequiredStaticParameterValues());
+			}
+			assertEquals(expectedRouteSet.getBestMatch("GET", "/resource7/1").getParameters(), routeSet.getBestMatch("GET", "/resource7/1").getParameters());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.ryanberdeen.routes.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SharedHashMapTest {
+	@Test
+	public void testCopiesAreIndependent() {
+		SharedHashMap<String, String> map = new SharedHashMap<String, String>();
+		map.put("a", "1");
+		SharedHashMap<String, String> copy = map.copy();
+		Map<String, String> snapshot = map.snapshot();
+
+		map.put("a", "2");
+		copy.put("b", "3");
+		copy.put("a", null);
+
+		assertEquals("2", map.get("a"));
+		assertNull(map.get("b"));
+		assertNull(copy.get("a"));
+		assertTrue(copy.snapshot().containsKey("a"));
+		assertEquals("3", copy.get("b"));
+		assertEquals(1, snapshot.size());
+		assertEquals("1", snapshot.get("a"));
+	}
+
+	@Test
+	public void testDeepCopies() {
+		SharedHashMap<String, Integer> map = new SharedHashMap<String, Integer>();
+		map.put("root", 0);
+		for (int i = 1; i <= SharedHashMap.MAX_DEPTH * 3; i++) {
+			map = map.copy();
+			map.put("level" + i, i);
+			map.put("root", i);
+		}
+
+		Map<String, Integer> snapshot = map.snapshot();
+		assertEquals(SharedHashMap.MAX_DEPTH * 3 + 1, snapshot.size());
+		assertEquals(Integer.valueOf(SharedHashMap.MAX_DEPTH * 3), snapshot.get("root"));
+		assertEquals(Integer.valueOf(1), snapshot.get("level1"));
+		assertFalse(snapshot.containsKey("level0"));
+		assertEquals(snapshot, map.copy().snapshot());
+	}
+}
@@ -0,0 +1,48 @@
+package com.ryanberdeen.routes.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	@Test
+	public void testBuckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.record(1001);
+		histogram.record(Long.MAX_VALUE / 2);
+
+		assertEquals(1, histogram.getCount(0));
+		assertEquals(1, histogram.getCount(1));
+		assertEquals(1, histogram.getCount(LatencyHistogram.BUCKETS));
+		assertEquals(3, histogram.getCount());
+	}
+
+	@Test
+	public void testConcurrentRecord() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						histogram.record(j % 4 == 0 ? 5000 : 500);
+					}
+				}
+			};
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(60000, histogram.getCount(0));
+		assertEquals(20000, histogram.getCount(3));
+		assertEquals(80000, histogram.getCount());
+		assertEquals(20000L * 5000 + 60000L * 500, histogram.getTotalNanos());
+	}
+}
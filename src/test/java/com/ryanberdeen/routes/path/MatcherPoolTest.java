@@ -0,0 +1,45 @@
+package com.ryanberdeen.routes.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class MatcherPoolTest {
+	private final MatcherPool pool = new MatcherPool(Pattern.compile("^/people/([0-9]+)$"));
+
+	@Test
+	public void testReuse() {
+		Matcher matcher = pool.acquire("/people/1");
+		assertTrue(matcher.matches());
+		pool.release(matcher);
+
+		// a released matcher does not keep its input
+		assertEquals(0, matcher.regionEnd());
+
+		assertSame(matcher, pool.acquire("/people/2"));
+		assertTrue(matcher.matches());
+		assertEquals("2", matcher.group(1));
+		assertEquals(1, pool.getSlotCount());
+	}
+
+	@Test
+	public void testGrowth() {
+		// matchers held at once find their slots empty
+		ArrayList<Matcher> matchers = new ArrayList<Matcher>();
+		for (int i = 0; i < 100; i++) {
+			matchers.add(pool.acquire("/people/1"));
+		}
+		assertEquals(MatcherPool.MAX_SLOTS, pool.getSlotCount());
+
+		for (Matcher matcher : matchers) {
+			pool.release(matcher);
+		}
+		assertTrue(pool.acquire("/people/1").matches());
+	}
+}
@@ -0,0 +1,62 @@
+package com.ryanberdeen.routes.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class ParameterTypeTest {
+	private long[] slots = new long[2];
+
+	@Test
+	public void testInt() {
+		assertTrue(ParameterType.INT.parse("-2147483648", slots, 0));
+		assertEquals(Integer.MIN_VALUE, slots[0]);
+		assertTrue(ParameterType.INT.parse("2147483647", slots, 1));
+		assertEquals(Integer.MAX_VALUE, slots[1]);
+		assertFalse(ParameterType.INT.accepts("2147483648"));
+		assertFalse(ParameterType.INT.accepts("-"));
+		assertFalse(ParameterType.INT.accepts(""));
+		assertFalse(ParameterType.INT.accepts("1a"));
+	}
+
+	@Test
+	public void testLong() {
+		assertTrue(ParameterType.LONG.parse("9223372036854775807", slots, 0));
+		assertEquals(Long.MAX_VALUE, slots[0]);
+		assertTrue(ParameterType.LONG.parse("-9223372036854775808", slots, 0));
+		assertEquals(Long.MIN_VALUE, slots[0]);
+		assertFalse(ParameterType.LONG.accepts("9223372036854775808"));
+	}
+
+	@Test
+	public void testUuid() {
+		UUID uuid = UUID.randomUUID();
+		assertTrue(ParameterType.UUID.parse(uuid.toString().toUpperCase(), slots, 0));
+		assertEquals(uuid, new UUID(slots[0], slots[1]));
+		assertFalse(ParameterType.UUID.accepts(uuid.toString().replace('-', '_')));
+		assertFalse(ParameterType.UUID.accepts(uuid.toString().substring(1)));
+		// only ASCII hexadecimal digits
+		assertFalse(ParameterType.UUID.accepts("\uff10" + uuid.toString().substring(1)));
+		assertFalse(ParameterType.UUID.accepts("\u0661" + uuid.toString().substring(1)));
+	}
+
+	@Test
+	public void testSlugAndEnum() {
+		assertTrue(ParameterType.SLUG.accepts("a-1-b"));
+		assertFalse(ParameterType.SLUG.accepts("a--b"));
+		assertFalse(ParameterType.SLUG.accepts("-a"));
+		assertFalse(ParameterType.SLUG.accepts("a-"));
+		assertFalse(ParameterType.SLUG.accepts("A"));
+
+		ParameterType type = ParameterType.forName("enum:open,closed");
+		assertTrue(type.accepts("closed"));
+		assertFalse(type.accepts("pending"));
+		assertEquals("enum:open,closed", type.toString());
+		assertSame(ParameterType.UUID, ParameterType.forName("uuid"));
+	}
+}
@@ -4,7 +4,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -90,4 +92,33 @@ public class PathPatternTest {
 		assertNotNull(match);
 		assertEquals(0, match.size());
 	}
+
+	@Test
+	public void testConcurrentMatch() throws Exception {
+		final PathPattern pattern = simplePatternAfter.createPathPattern(NO_PARAMETER_NAMES, NO_PARAMETER_VALUES);
+		final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			final String value = "value" + i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						Map<String, String> match = pattern.match("before/" + value);
+						if (match == null || !value.equals(match.get("parameter")) || pattern.match("after/" + value) != null) {
+							failures.add(value + " " + match);
+							return;
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(Collections.emptyList(), failures);
+	}
 }
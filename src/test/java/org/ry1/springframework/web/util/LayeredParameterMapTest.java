@@ -0,0 +1,144 @@
+package org.ry1.springframework.web.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LayeredParameterMapTest {
+	private HashMap<String, String[]> baseParameters;
+	private LayeredParameterMap parameters;
+
+	@Before
+	public void setUp() {
+		baseParameters = new HashMap<String, String[]>();
+		baseParameters.put("a", new String[] {"base"});
+		baseParameters.put("b", new String[] {"base"});
+		parameters = new LayeredParameterMap(baseParameters);
+	}
+
+	@Test
+	public void testAddValues() {
+		parameters.addValues("a", new String[] {"1", "2"});
+		parameters.addValues("a", new String[] {"3"});
+		parameters.addValues("c", new String[] {"4"});
+
+		assertArrayEquals(new String[] {"3", "1", "2", "base"}, parameters.get("a"));
+		assertArrayEquals(new String[] {"base"}, parameters.get("b"));
+		assertArrayEquals(new String[] {"4"}, parameters.get("c"));
+		assertEquals(3, parameters.size());
+
+		// the base parameters are not modified
+		assertEquals(2, baseParameters.size());
+		assertArrayEquals(new String[] {"base"}, baseParameters.get("a"));
+	}
+
+	@Test
+	public void testPutAndRemove() {
+		parameters.put("a", new String[] {"1"});
+		parameters.addValues("a", new String[] {"2"});
+		assertArrayEquals(new String[] {"2", "1"}, parameters.get("a"));
+
+		parameters.remove("b");
+		assertNull(parameters.get("b"));
+		assertFalse(parameters.containsKey("b"));
+		assertEquals(1, parameters.size());
+		assertEquals(1, parameters.entrySet().size());
+	}
+
+	@Test
+	public void testPutNull() {
+		parameters.put("a", null);
+		assertNull(parameters.get("a"));
+		assertFalse(parameters.containsKey("a"));
+		assertEquals(1, parameters.size());
+	}
+
+	@Test
+	public void testClear() {
+		parameters.addValues("c", new String[] {"1"});
+		parameters.clear();
+		assertEquals(0, parameters.size());
+		assertTrue(parameters.isEmpty());
+		assertFalse(parameters.containsKey("a"));
+		assertNull(parameters.get("c"));
+
+		parameters.addValues("a", new String[] {"2"});
+		assertArrayEquals(new String[] {"2"}, parameters.get("a"));
+		assertEquals(2, baseParameters.size());
+	}
+
+	@Test
+	public void testValuesAreCopied() {
+		parameters.addValues("a", new String[] {"1"});
+		parameters.get("a")[0] = "changed";
+		parameters.get("b")[0] = "changed";
+		parameters.entrySet().iterator().next().getValue()[0] = "changed";
+
+		assertArrayEquals(new String[] {"1", "base"}, parameters.get("a"));
+		assertArrayEquals(new String[] {"base"}, parameters.get("b"));
+		assertArrayEquals(new String[] {"base"}, baseParameters.get("b"));
+	}
+
+	@Test
+	public void testGetValuesDoesNotCopy() {
+		assertSame(baseParameters.get("a"), parameters.getValues("a"));
+		parameters.addValues("a", new String[] {"1"});
+		assertSame(parameters.getValues("a"), parameters.getValues("a"));
+		assertNull(parameters.getValues("c"));
+	}
+
+	@Test
+	public void testEntries() {
+		// entries compare and hash like the entries of the underlying map
+		assertEquals(baseParameters.hashCode(), parameters.hashCode());
+		Map.Entry<String, String[]> entry = parameters.entrySet().iterator().next();
+		for (Map.Entry<String, String[]> baseEntry : baseParameters.entrySet()) {
+			assertEquals(baseEntry.getKey().equals(entry.getKey()), entry.equals(baseEntry));
+		}
+		assertEquals(entry, parameters.entrySet().iterator().next());
+		assertEquals(entry.hashCode(), parameters.entrySet().iterator().next().hashCode());
+	}
+
+	@Test
+	public void testReadOnlyViews() {
+		assertReadOnly(parameters);
+		parameters.addValues("c", new String[] {"1"});
+		assertReadOnly(parameters);
+		assertEquals(3, parameters.size());
+		assertEquals(2, baseParameters.size());
+	}
+
+	private static void assertReadOnly(Map<String, String[]> parameters) {
+		Map.Entry<String, String[]> entry = parameters.entrySet().iterator().next();
+		try {
+			entry.setValue(new String[] {"changed"});
+			fail();
+		}
+		catch (UnsupportedOperationException e) {}
+
+		Iterator<Map.Entry<String, String[]>> entries = parameters.entrySet().iterator();
+		entries.next();
+		try {
+			entries.remove();
+			fail();
+		}
+		catch (UnsupportedOperationException e) {}
+
+		try {
+			parameters.keySet().remove("a");
+			fail();
+		}
+		catch (UnsupportedOperationException e) {}
+	}
+}